@@ -56,6 +56,8 @@ import org.junit.runners.Suite.SuiteClasses;
 	CodeActionTests.class,
 	DocumentLinkTest.class,
 	OpenCloseLanguageServerTest.class,
+	RequestSchedulerTest.class,
+	ResponseCacheTest.class,
 	HighlightTest.class
 })
 public class AllTests {
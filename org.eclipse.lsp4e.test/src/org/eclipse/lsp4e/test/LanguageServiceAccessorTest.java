@@ -21,8 +21,14 @@ import static org.junit.Assert.assertTrue;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.resources.IFile;
@@ -34,10 +40,12 @@ import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.tests.util.DisplayHelper;
 import org.eclipse.lsp4e.LanguageServerWrapper;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
 import org.eclipse.lsp4j.services.LanguageServer;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
 import org.junit.After;
 import org.junit.Before;
@@ -192,4 +200,89 @@ public class LanguageServiceAccessorTest {
 		assertFalse("Should only be a single LS", iterator.hasNext());
 	}
 
+	@Test
+	public void testGetInitializedLSPDocumentInfos() throws Exception {
+		IFile testFile = TestUtils.createFile(project, "shouldUseExtension.lspt", "");
+		ITextViewer textViewer = TestUtils.openTextViewer(testFile);
+		List<LSPDocumentInfo> infos = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(textViewer.getDocument(), capabilities -> Boolean.TRUE)
+				.get(1, TimeUnit.SECONDS);
+		assertEquals(1, infos.size());
+		assertEquals(textViewer.getDocument(), infos.get(0).getDocument());
+		// servers of the document are resolved once, then reused
+		List<LSPDocumentInfo> otherInfos = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(textViewer.getDocument(), capabilities -> Boolean.TRUE)
+				.get(1, TimeUnit.SECONDS);
+		assertEquals(1, otherInfos.size());
+		assertEquals(infos.get(0).getCapabilites(), otherInfos.get(0).getCapabilites());
+		assertTrue(LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(textViewer.getDocument(), capabilities -> Boolean.FALSE)
+				.get(1, TimeUnit.SECONDS).isEmpty());
+	}
+
+	@Test
+	public void testConcurrentGetLSWrappers() throws Exception {
+		IFile testFile = TestUtils.createFile(project, "shouldUseExtension.lspt", "");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Collection<LanguageServerWrapper>>> results = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				results.add(executor.submit(() -> LanguageServiceAccessor.getLSWrappers(testFile, null)));
+			}
+			Set<LanguageServerWrapper> wrappers = new HashSet<>();
+			for (Future<Collection<LanguageServerWrapper>> result : results) {
+				wrappers.addAll(result.get(5, TimeUnit.SECONDS));
+			}
+			// a single server gets started for the project
+			assertEquals(1, wrappers.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentConnectDisconnect() throws Exception {
+		List<IFile> files = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			files.add(TestUtils.createFile(project, "concurrent" + i + ".lspt", ""));
+		}
+		LanguageServerWrapper wrapper = LanguageServiceAccessor.getLSWrappers(files.get(0), null).iterator().next();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (IFile file : files) {
+				results.add(executor.submit(() -> {
+					wrapper.connect(file, new Document());
+					return null;
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get(5, TimeUnit.SECONDS);
+			}
+			wrapper.getInitializedServer().get(5, TimeUnit.SECONDS);
+			for (IFile file : files) {
+				assertTrue(new DisplayHelper() {
+					@Override
+					protected boolean condition() {
+						return wrapper.isConnectedTo(file.getLocation());
+					}
+				}.waitForCondition(Display.getCurrent(), 5000));
+			}
+			results.clear();
+			// all but the first one
+			for (IFile file : files.subList(1, files.size())) {
+				results.add(executor.submit(() -> wrapper.disconnect(file.getLocation())));
+			}
+			for (Future<?> result : results) {
+				result.get(5, TimeUnit.SECONDS);
+			}
+			assertTrue(wrapper.isConnectedTo(files.get(0).getLocation()));
+			assertFalse(wrapper.isConnectedTo(files.get(1).getLocation()));
+			assertTrue(wrapper.isActive());
+		} finally {
+			executor.shutdownNow();
+			wrapper.disconnect(files.get(0).getLocation());
+		}
+	}
+
 }
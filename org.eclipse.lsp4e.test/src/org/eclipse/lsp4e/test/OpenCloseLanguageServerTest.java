@@ -10,14 +10,25 @@
  *******************************************************************************/
 package org.eclipse.lsp4e.test;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.text.tests.util.DisplayHelper;
+import org.eclipse.lsp4e.LanguageServerPlugin;
+import org.eclipse.lsp4e.LanguageServerWarmUp;
+import org.eclipse.lsp4e.LanguageServerWrapper;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
+import org.eclipse.lsp4e.RpcExecutor;
 import org.eclipse.lsp4e.tests.mock.MockLanguageSever;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.IEditorPart;
@@ -62,6 +73,104 @@ public class OpenCloseLanguageServerTest {
 		}
 	}
 	
+	@Test
+	public void testReopenWhileStopping() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+				.next().get(5, TimeUnit.SECONDS);
+		assertTrue(new StartedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+
+		// server is shut down in background, the new one gets started only after
+		((AbstractTextEditor)editor).close(false);
+		editor = TestUtils.openEditor(testFile);
+		LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+				.next().get(5, TimeUnit.SECONDS);
+		assertTrue("language server is restarted", new StartedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+		((AbstractTextEditor)editor).close(false);
+		assertTrue("language server is closed", new StoppedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+	}
+
+	@Test
+	public void testIdleServerReusedOnReopen() throws Exception {
+		IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode(LanguageServerPlugin.PLUGIN_ID);
+		preferences.putLong(LanguageServerWrapper.IDLE_TIMEOUT_PREFERENCE, 60000);
+		try {
+			IFile testFile = TestUtils.createUniqueTestFile(project, "");
+			IEditorPart editor = TestUtils.openEditor(testFile);
+			LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+					.next().get(5, TimeUnit.SECONDS);
+			LanguageServerWrapper wrapper = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE).iterator().next();
+
+			// closing the last document keeps the server running until the timeout expires
+			((AbstractTextEditor)editor).close(false);
+			assertFalse(wrapper.isConnectedTo(testFile.getLocation()));
+			assertFalse("language server is kept running", new StoppedDisplayHelper().waitForCondition(Display.getCurrent(), 1000, 100));
+			assertTrue(wrapper.isActive());
+
+			editor = TestUtils.openEditor(testFile);
+			LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+					.next().get(5, TimeUnit.SECONDS);
+			assertSame(wrapper, LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE).iterator().next());
+			assertTrue(wrapper.isActive());
+
+			// connected servers aren't stopped on low memory, idle ones are
+			LanguageServiceAccessor.stopIdleLanguageServers();
+			assertTrue(wrapper.isActive());
+			((AbstractTextEditor)editor).close(false);
+			LanguageServiceAccessor.stopIdleLanguageServers();
+			assertFalse(wrapper.isActive());
+			assertTrue("language server is closed", new StoppedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+		} finally {
+			preferences.remove(LanguageServerWrapper.IDLE_TIMEOUT_PREFERENCE);
+		}
+	}
+
+	@Test
+	public void testWarmUpOnProjectOpen() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		project.close(new NullProgressMonitor());
+		IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode(LanguageServerPlugin.PLUGIN_ID);
+		preferences.putBoolean(LanguageServerWarmUp.WARM_UP_PREFERENCE, true);
+		try {
+			project.open(new NullProgressMonitor());
+			assertTrue("language server is started without opening a file", new StartedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+
+			LanguageServerWrapper wrapper = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE).iterator().next();
+			assertFalse(wrapper.isConnectedTo(testFile.getLocation()));
+			IEditorPart editor = TestUtils.openEditor(testFile);
+			LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+					.next().get(5, TimeUnit.SECONDS);
+			assertSame(wrapper, LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE).iterator().next());
+			((AbstractTextEditor)editor).close(false);
+			assertTrue("language server is closed", new StoppedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+		} finally {
+			preferences.remove(LanguageServerWarmUp.WARM_UP_PREFERENCE);
+		}
+	}
+
+	@Test
+	public void testRpcExecutorShutDownOnStop() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		LanguageServiceAccessor.getInitializedLanguageServers(testFile, capabilities -> Boolean.TRUE).iterator()
+				.next().get(5, TimeUnit.SECONDS);
+		RpcExecutor executor = null;
+		for (RpcExecutor candidate : RpcExecutor.getExecutors()) {
+			if (candidate.getName().contains(project.getName())) {
+				executor = candidate;
+			}
+		}
+		assertNotNull("executor of the server instance is registered", executor);
+		// the messages of the language server are being read
+		assertTrue(executor.getActiveTaskCount() >= 1);
+
+		((AbstractTextEditor)editor).close(false);
+		assertTrue("language server is closed", new StoppedDisplayHelper().waitForCondition(Display.getCurrent(), 5000, 300));
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertFalse(RpcExecutor.getExecutors().contains(executor));
+	}
+
 	protected static class StartedDisplayHelper extends DisplayHelper {
 		@Override
 		protected boolean condition() {
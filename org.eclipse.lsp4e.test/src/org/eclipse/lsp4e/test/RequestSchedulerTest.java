@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.lsp4e.LanguageServiceAccessor;
+import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
+import org.eclipse.lsp4j.services.LanguageServer;
+import org.eclipse.ui.IEditorPart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestSchedulerTest {
+
+	private IProject project;
+	private RequestScheduler scheduler;
+	/** requests "sent" by the scheduler, in order */
+	private List<CompletableFuture<String>> sentRequests = new ArrayList<>();
+	private List<String> sentNames = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		project = TestUtils.createProject("RequestSchedulerTest" + System.currentTimeMillis());
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		scheduler = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE).iterator().next()
+				.getRequestScheduler();
+	}
+
+	@After
+	public void tearDown() throws CoreException {
+		sentRequests.forEach(request -> request.complete(null));
+		project.delete(true, true, new NullProgressMonitor());
+	}
+
+	private CompletableFuture<String> schedule(Priority priority, String key, String name) {
+		return schedule(priority, key, null, name);
+	}
+
+	private CompletableFuture<String> schedule(Priority priority, String key, String identity, String name) {
+		return scheduler.schedule(priority, null, key, identity, () -> {
+			CompletableFuture<String> request = new CompletableFuture<>();
+			sentRequests.add(request);
+			sentNames.add(name);
+			return request;
+		});
+	}
+
+	@Test
+	public void testInteractiveRequestsAreNotQueued() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			schedule(Priority.BACKGROUND, null, "background" + i);
+		}
+		schedule(Priority.BACKGROUND, null, "queued");
+		assertEquals(4, sentNames.size());
+		assertEquals(1, scheduler.getQueuedCount());
+
+		CompletableFuture<String> completion = schedule(Priority.INTERACTIVE, null, "completion");
+		assertEquals("completion", sentNames.get(sentNames.size() - 1));
+		sentRequests.get(sentRequests.size() - 1).complete("result");
+		assertEquals("result", completion.get());
+		// slot of the interactive request doesn't let background requests exceed the limit
+		assertEquals(1, scheduler.getQueuedCount());
+	}
+
+	@Test
+	public void testVisibleRequestsSentBeforeBackgroundOnes() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			schedule(Priority.BACKGROUND, null, "background" + i);
+		}
+		schedule(Priority.BACKGROUND, null, "queuedBackground");
+		schedule(Priority.VISIBLE, null, "queuedVisible");
+		assertEquals(2, scheduler.getQueuedCount());
+
+		sentRequests.get(0).complete(null);
+		assertEquals("queuedVisible", sentNames.get(sentNames.size() - 1));
+		sentRequests.get(1).complete(null);
+		assertEquals("queuedBackground", sentNames.get(sentNames.size() - 1));
+		assertEquals(0, scheduler.getQueuedCount());
+		assertEquals(4, scheduler.getInFlightCount());
+	}
+
+	@Test
+	public void testSupersededRequestsAreCancelled() throws Exception {
+		CompletableFuture<String> first = schedule(Priority.BACKGROUND, "symbols", "first");
+		CompletableFuture<String> second = schedule(Priority.BACKGROUND, "symbols", "second");
+		assertTrue(first.isCancelled());
+		assertTrue(sentRequests.get(0).isCancelled());
+		assertFalse(second.isDone());
+		assertEquals(1, scheduler.getInFlightCount());
+
+		// queued requests are dropped without being sent
+		for (int i = 0; i < 3; i++) {
+			schedule(Priority.BACKGROUND, null, "background" + i);
+		}
+		CompletableFuture<String> queued = schedule(Priority.BACKGROUND, "outline", "queued");
+		schedule(Priority.BACKGROUND, "outline", "latest");
+		assertTrue(queued.isCancelled());
+		assertEquals(1, scheduler.getQueuedCount());
+		sentRequests.get(1).complete(null);
+		assertEquals("latest", sentNames.get(sentNames.size() - 1));
+		assertFalse(sentNames.contains("queued"));
+	}
+
+	@Test
+	public void testCounters() throws Exception {
+		long completed = scheduler.getCompletedCount();
+		long failed = scheduler.getFailedCount();
+		long cancelled = scheduler.getCancelledCount();
+		schedule(Priority.INTERACTIVE, null, "completed");
+		schedule(Priority.INTERACTIVE, null, "failed");
+		CompletableFuture<String> timedOut = schedule(Priority.INTERACTIVE, null, "timedOut");
+		sentRequests.get(0).complete("result");
+		sentRequests.get(1).completeExceptionally(new IllegalStateException());
+		try {
+			timedOut.get(10, TimeUnit.MILLISECONDS);
+			fail("request shouldn't have completed");
+		} catch (TimeoutException e) {
+			timedOut.cancel(true);
+		}
+		assertTrue("request sent is cancelled", sentRequests.get(2).isCancelled());
+		assertEquals(completed + 1, scheduler.getCompletedCount());
+		assertEquals(failed + 1, scheduler.getFailedCount());
+		assertEquals(cancelled + 1, scheduler.getCancelledCount());
+		assertEquals(0, scheduler.getInFlightCount());
+	}
+
+	@Test
+	public void testRequestsCancelledOnDocumentClose() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		IDocument document = TestUtils.getTextViewer(editor).getDocument();
+		LSPDocumentInfo info = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(document, capabilities -> Boolean.TRUE).get(5, TimeUnit.SECONDS).get(0);
+		CompletableFuture<String> sent = new CompletableFuture<>();
+		CompletableFuture<Void> sending = new CompletableFuture<>();
+		CompletableFuture<String> result = info.sendRequest(Priority.BACKGROUND, null, languageServer -> {
+			sending.complete(null);
+			return sent;
+		});
+		sending.get(5, TimeUnit.SECONDS);
+
+		TestUtils.closeEditor(editor, false);
+		assertTrue(result.isCancelled());
+		assertTrue("request sent to the language server is cancelled", sent.isCancelled());
+	}
+
+	@Test
+	public void testIdenticalRequestsShared() throws Exception {
+		long shared = scheduler.getSharedCount();
+		CompletableFuture<String> first = schedule(Priority.INTERACTIVE, null, "hover", "first");
+		CompletableFuture<String> second = schedule(Priority.INTERACTIVE, null, "hover", "second");
+		CompletableFuture<String> other = schedule(Priority.INTERACTIVE, null, "other", "other");
+		assertEquals(2, sentRequests.size());
+		assertEquals(shared + 1, scheduler.getSharedCount());
+
+		first.cancel(true);
+		assertFalse("request still waited for isn't cancelled", sentRequests.get(0).isCancelled());
+		sentRequests.get(0).complete("result");
+		assertEquals("result", second.get());
+
+		// request completed isn't shared anymore
+		schedule(Priority.INTERACTIVE, null, "hover", "third");
+		assertEquals("third", sentNames.get(sentNames.size() - 1));
+		other.cancel(true);
+		assertTrue("request nobody waits for is cancelled", sentRequests.get(1).isCancelled());
+	}
+
+	@Test
+	public void testSharedRequestPromoted() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			schedule(Priority.BACKGROUND, null, "background" + i);
+		}
+		schedule(Priority.BACKGROUND, null, "queuedBackground");
+		schedule(Priority.BACKGROUND, "outline", "symbols", "outline");
+		schedule(Priority.VISIBLE, null, "queuedVisible");
+		assertEquals(3, scheduler.getQueuedCount());
+
+		CompletableFuture<String> quickOutline = schedule(Priority.INTERACTIVE, "outline", "symbols", "quickOutline");
+		assertEquals("queued request shared by an interactive caller is sent right away", "outline",
+				sentNames.get(sentNames.size() - 1));
+		assertFalse(sentNames.contains("quickOutline"));
+		assertEquals(2, scheduler.getQueuedCount());
+		sentRequests.get(sentRequests.size() - 1).complete("symbols");
+		assertEquals("symbols", quickOutline.get());
+
+		schedule(Priority.BACKGROUND, "codeLens", "lenses", "menu");
+		schedule(Priority.VISIBLE, "codeLens", "lenses", "hover");
+		sentRequests.get(0).complete(null);
+		assertEquals("queuedVisible", sentNames.get(sentNames.size() - 1));
+		sentRequests.get(1).complete(null);
+		assertEquals("request shared by a visible caller is sent before background ones", "menu",
+				sentNames.get(sentNames.size() - 1));
+	}
+
+	@Test
+	public void testSharedRequestNotSuperseded() throws Exception {
+		CompletableFuture<String> outline = schedule(Priority.BACKGROUND, "symbols", "version1", "outline");
+		CompletableFuture<String> quickOutline = schedule(Priority.INTERACTIVE, "symbols", "version1", "quickOutline");
+		CompletableFuture<String> latest = schedule(Priority.BACKGROUND, "symbols", "version2", "latest");
+		assertFalse("request other callers wait for isn't superseded", sentRequests.get(0).isCancelled());
+		assertFalse(outline.isDone());
+		sentRequests.get(0).complete("symbols");
+		assertEquals("symbols", quickOutline.get());
+
+		schedule(Priority.BACKGROUND, "symbols", "version3", "newest");
+		assertTrue("request only one caller waits for is superseded", latest.isCancelled());
+		assertTrue(sentRequests.get(1).isCancelled());
+	}
+
+	@Test
+	public void testFailingRequestReleasesItsSlot() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		IDocument document = TestUtils.getTextViewer(editor).getDocument();
+		LSPDocumentInfo info = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(document, capabilities -> Boolean.TRUE).get(5, TimeUnit.SECONDS).get(0);
+		RequestScheduler infoScheduler = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE)
+				.iterator().next().getRequestScheduler();
+		for (int i = 0; i < 10; i++) {
+			CompletableFuture<String> failing = info.sendRequest(Priority.BACKGROUND, null, languageServer -> {
+				throw new IllegalStateException("stream closed");
+			});
+			try {
+				failing.get(5, TimeUnit.SECONDS);
+				fail("request should have failed");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		}
+		assertEquals("failed requests don't keep their slot", 0, infoScheduler.getInFlightCount());
+		assertEquals("result", info.sendRequest(Priority.BACKGROUND, null,
+				languageServer -> CompletableFuture.completedFuture("result")).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testRequestsSharedForSameDocumentVersion() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		IDocument document = TestUtils.getTextViewer(editor).getDocument();
+		LSPDocumentInfo info = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(document, capabilities -> Boolean.TRUE).get(5, TimeUnit.SECONDS).get(0);
+		AtomicInteger sentCount = new AtomicInteger();
+		CompletableFuture<String> response = new CompletableFuture<>();
+		Function<LanguageServer, CompletableFuture<String>> request = languageServer -> {
+			sentCount.incrementAndGet();
+			return response;
+		};
+		CompletableFuture<String> first = info.sendRequest(Priority.INTERACTIVE, "test/method", "params", request);
+		CompletableFuture<String> second = info.sendRequest(Priority.INTERACTIVE, "test/method", "params", request);
+		response.complete("result");
+		assertEquals("result", first.get(5, TimeUnit.SECONDS));
+		assertEquals("result", second.get(5, TimeUnit.SECONDS));
+		assertEquals(1, sentCount.get());
+
+		document.set("changed");
+		info.sendRequest(Priority.INTERACTIVE, "test/method", "params", request).get(5, TimeUnit.SECONDS);
+		assertEquals("request for a new version of the document is sent", 2, sentCount.get());
+	}
+
+}
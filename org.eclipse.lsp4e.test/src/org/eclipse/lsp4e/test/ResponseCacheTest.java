@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.lsp4e.LanguageServiceAccessor;
+import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
+import org.eclipse.lsp4e.ResponseCache;
+import org.eclipse.lsp4j.services.LanguageServer;
+import org.eclipse.ui.IEditorPart;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+	private IProject project;
+
+	@Before
+	public void setUp() throws CoreException {
+		project = TestUtils.createProject("ResponseCacheTest" + System.currentTimeMillis());
+	}
+
+	@After
+	public void tearDown() throws CoreException {
+		project.delete(true, true, new NullProgressMonitor());
+	}
+
+	@Test
+	public void testResponsesCachedUntilDocumentChanges() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		IEditorPart editor = TestUtils.openEditor(testFile);
+		IDocument document = TestUtils.getTextViewer(editor).getDocument();
+		LSPDocumentInfo info = LanguageServiceAccessor
+				.getInitializedLSPDocumentInfos(document, capabilities -> Boolean.TRUE).get(5, TimeUnit.SECONDS).get(0);
+		ResponseCache cache = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE)
+				.iterator().next().getResponseCache();
+		AtomicInteger sentCount = new AtomicInteger();
+		Function<LanguageServer, CompletableFuture<String>> request = languageServer -> CompletableFuture
+				.completedFuture("response" + sentCount.incrementAndGet());
+
+		assertEquals("response1", info.sendCachedRequest(Priority.BACKGROUND, "test/method", "params", request)
+				.get(5, TimeUnit.SECONDS));
+		assertEquals("response1", info.sendCachedRequest(Priority.BACKGROUND, "test/method", "params", request)
+				.get(5, TimeUnit.SECONDS));
+		assertEquals(1, sentCount.get());
+		assertEquals("response2", info.sendCachedRequest(Priority.BACKGROUND, "test/method", "other", request)
+				.get(5, TimeUnit.SECONDS));
+		assertEquals(2, cache.size());
+
+		document.set("changed");
+		assertEquals("response3", info.sendCachedRequest(Priority.BACKGROUND, "test/method", "params", request)
+				.get(5, TimeUnit.SECONDS));
+		assertEquals("responses to the previous version are dropped", 1, cache.size());
+
+		TestUtils.closeEditor(editor, false);
+		assertEquals("responses are dropped when the document is closed", 0, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedResponsesEvicted() throws Exception {
+		IFile testFile = TestUtils.createUniqueTestFile(project, "");
+		ResponseCache cache = LanguageServiceAccessor.getLSWrappers(testFile, capabilities -> Boolean.TRUE)
+				.iterator().next().getResponseCache();
+		URI document = testFile.getLocationURI();
+		for (int i = 0; i < 100; i++) {
+			String response = "response" + i;
+			cache.get("test/method", document, 1, Integer.valueOf(i), () -> CompletableFuture.completedFuture(response));
+		}
+		long hits = cache.getHitCount();
+		assertEquals("response0", cache.get("test/method", document, 1, Integer.valueOf(0),
+				() -> CompletableFuture.completedFuture("sent again")).get());
+		assertEquals(hits + 1, cache.getHitCount());
+
+		cache.get("test/method", document, 1, Integer.valueOf(100), () -> CompletableFuture.completedFuture("response100"));
+		assertEquals(100, cache.size());
+		assertEquals("response0", cache.get("test/method", document, 1, Integer.valueOf(0),
+				() -> CompletableFuture.completedFuture("sent again")).get());
+		assertEquals("sent again", cache.get("test/method", document, 1, Integer.valueOf(1),
+				() -> CompletableFuture.completedFuture("sent again")).get());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+}
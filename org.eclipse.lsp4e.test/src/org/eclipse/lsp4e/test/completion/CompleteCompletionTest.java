@@ -46,6 +46,8 @@ import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.InsertTextFormat;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.Registration;
+import org.eclipse.lsp4j.RegistrationParams;
 import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.ST;
@@ -197,10 +199,35 @@ public class CompleteCompletionTest {
 		String content = "First";
 		TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, content));
 
+		// trigger characters are available once the server is initialized, without waiting for it
+		new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return contentAssistProcessor.getCompletionProposalAutoActivationCharacters().length > 0;
+			}
+		}.waitForCondition(Display.getCurrent(), 3000);
 		assertArrayEquals(new char[] { 'a', 'b' },
 				contentAssistProcessor.getCompletionProposalAutoActivationCharacters());
 	}
 
+	@Test
+	public void testTriggerCharsRegistered() throws Exception {
+		MockLanguageSever.INSTANCE.setCompletionTriggerChars(Collections.singleton("a"));
+		TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, "First"));
+		new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return contentAssistProcessor.getCompletionProposalAutoActivationCharacters().length > 0;
+			}
+		}.waitForCondition(Display.getCurrent(), 3000);
+		assertArrayEquals(new char[] { 'a' }, contentAssistProcessor.getCompletionProposalAutoActivationCharacters());
+
+		Registration registration = new Registration("completion", "textDocument/completion",
+				Collections.singletonMap("triggerCharacters", Arrays.asList("c", "d")));
+		MockLanguageSever.INSTANCE.registerCapability(new RegistrationParams(Collections.singletonList(registration)));
+		assertArrayEquals(new char[] { 'c', 'd' }, contentAssistProcessor.getCompletionProposalAutoActivationCharacters());
+	}
+
 	@Test
 	public void testTriggerCharsNullList() throws CoreException, InvocationTargetException {
 		MockLanguageSever.INSTANCE.setCompletionTriggerChars(null);
@@ -346,6 +373,28 @@ public class CompleteCompletionTest {
 		assertEquals("BA", viewer.getDocument().get());
 	}
 
+	@Test
+	public void testLargeListOrdering() throws Exception {
+		Range range = new Range(new Position(0, 0), new Position(0, 1));
+		List<CompletionItem> items = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			CompletionItem item = createCompletionItem("item" + i, CompletionItemKind.Field, range);
+			item.setSortText(String.format("%05d", 9999 - i));
+			items.add(item);
+		}
+		// changes a character before the completion offset, so comes last
+		items.add(createCompletionItem("Item", CompletionItemKind.Field, range));
+		MockLanguageSever.INSTANCE.setCompletionList(new CompletionList(false, items));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, "i"));
+		ICompletionProposal[] proposals = contentAssistProcessor.computeCompletionProposals(viewer, 1);
+		assertEquals(items.size(), proposals.length);
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("item" + (9999 - i), proposals[i].getDisplayString());
+		}
+		assertEquals("Item", proposals[10000].getDisplayString());
+	}
+
 	@Test
 	public void testBasicSnippet() throws PartInitException, InvocationTargetException, CoreException {
 		CompletionItem completionItem = createCompletionItem("$1 and ${2:foo}", CompletionItemKind.Class, new Range(new Position(0, 0), new Position(0, 1)));
@@ -414,6 +463,75 @@ public class CompleteCompletionTest {
 		assertEquals(2 * items.size(), proposals.length);
 	}
 	
+	@Test
+	public void testSlowServerDoesNotBlockUI() throws Exception {
+		List<CompletionItem> items = new ArrayList<>();
+		items.add(createCompletionItem("FirstClass", CompletionItemKind.Class));
+		MockLanguageSever.INSTANCE.setCompletionList(new CompletionList(false, items));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, ""));
+		// makes sure the server is initialized
+		assertEquals(1, contentAssistProcessor.computeCompletionProposals(viewer, 0).length);
+
+		MockLanguageSever.INSTANCE.setTimeToProceedQueries(5000);
+		long start = System.currentTimeMillis();
+		ICompletionProposal[] proposals = contentAssistProcessor.computeCompletionProposals(viewer, 0);
+		assertEquals(0, proposals.length);
+		Assert.assertTrue("completion should not wait for the slow server",
+				System.currentTimeMillis() - start < 3000);
+	}
+
+	@Test
+	public void testCompleteListFilteredLocally() throws Exception {
+		List<CompletionItem> items = new ArrayList<>();
+		items.add(createCompletionItem("FirstClass", CompletionItemKind.Class));
+		items.add(createCompletionItem("SecondClass", CompletionItemKind.Class));
+		MockLanguageSever.INSTANCE.setCompletionList(new CompletionList(false, items));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, ""));
+		assertEquals(2, contentAssistProcessor.computeCompletionProposals(viewer, 0).length);
+
+		List<CompletionItem> otherItems = new ArrayList<>();
+		otherItems.add(createCompletionItem("FourthClass", CompletionItemKind.Class,
+				new Range(new Position(1, 0), new Position(1, 1))));
+		MockLanguageSever.INSTANCE.setCompletionList(new CompletionList(false, otherItems));
+		// typing a prefix refilters the previous complete list
+		viewer.getDocument().replace(0, 0, "F");
+		viewer.getDocument().replace(1, 0, "i");
+		ICompletionProposal[] proposals = contentAssistProcessor.computeCompletionProposals(viewer, 2);
+		assertEquals(1, proposals.length);
+		assertEquals("FirstClass", ((LSCompletionProposal) proposals[0]).getItem().getLabel());
+		viewer.getDocument().replace(1, 1, "");
+		proposals = contentAssistProcessor.computeCompletionProposals(viewer, 1);
+		assertEquals(1, proposals.length);
+		assertEquals("FirstClass", ((LSCompletionProposal) proposals[0]).getItem().getLabel());
+
+		// other edits require to request proposals again
+		viewer.getDocument().replace(0, 0, "\n");
+		proposals = contentAssistProcessor.computeCompletionProposals(viewer, 2);
+		assertEquals(1, proposals.length);
+		assertEquals("FourthClass", ((LSCompletionProposal) proposals[0]).getItem().getLabel());
+	}
+
+	@Test
+	public void testResolvedItemsReused() throws Exception {
+		MockLanguageSever.INSTANCE.getInitializeResult().getCapabilities().getCompletionProvider().setResolveProvider(true);
+		CompletionItem item = createCompletionItem("FirstClass", CompletionItemKind.Class);
+		item.setData("first");
+		MockLanguageSever.INSTANCE.setCompletionList(new CompletionList(false, Collections.singletonList(item)));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, ""));
+		LSCompletionProposal proposal = (LSCompletionProposal) contentAssistProcessor.computeCompletionProposals(viewer, 0)[0];
+		Assert.assertTrue(proposal.getAdditionalProposalInfo(new NullProgressMonitor()).toString().contains("Resolved FirstClass"));
+		proposal.getAdditionalProposalInfo(new NullProgressMonitor());
+		assertEquals(1, MockLanguageSever.INSTANCE.getTextDocumentService().getResolveCompletionItemRequests());
+
+		// same item received again
+		proposal = (LSCompletionProposal) contentAssistProcessor.computeCompletionProposals(viewer, 0)[0];
+		Assert.assertTrue(proposal.getAdditionalProposalInfo(new NullProgressMonitor()).toString().contains("Resolved FirstClass"));
+		assertEquals(1, MockLanguageSever.INSTANCE.getTextDocumentService().getResolveCompletionItemRequests());
+	}
+
 	@Test
 	public void testReopeningFileAndReusingContentAssist() throws CoreException, InvocationTargetException {
 		List<CompletionItem> items = new ArrayList<>();
@@ -24,12 +24,15 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.IContextInformation;
+import org.eclipse.jface.text.tests.util.DisplayHelper;
 import org.eclipse.lsp4e.operations.completion.LSContentAssistProcessor;
 import org.eclipse.lsp4e.test.TestUtils;
 import org.eclipse.lsp4e.tests.mock.MockLanguageSever;
 import org.eclipse.lsp4j.SignatureHelp;
 import org.eclipse.lsp4j.SignatureInformation;
+import org.eclipse.swt.widgets.Display;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -79,6 +82,46 @@ public class ContextInformationTest {
 		assertEquals(expected, infos[0].getInformationDisplayString());
 	}
 
+	@Test
+	public void testContextInformationReusedInArgumentList() throws Exception {
+		MockLanguageSever.INSTANCE.setSignatureHelp(createSignatureHelp("first"));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, "method(a, b)"));
+		IContextInformation[] infos = contentAssistProcessor.computeContextInformation(viewer, 7);
+		assertEquals(1, infos.length);
+		assertEquals("first", infos[0].getContextDisplayString());
+
+		MockLanguageSever.INSTANCE.setSignatureHelp(createSignatureHelp("second"));
+		// caret moved to the next argument
+		infos = contentAssistProcessor.computeContextInformation(viewer, 10);
+		assertEquals("first", infos[0].getContextDisplayString());
+
+		viewer.getDocument().replace(11, 0, ", c");
+		infos = contentAssistProcessor.computeContextInformation(viewer, 13);
+		assertEquals("second", infos[0].getContextDisplayString());
+	}
+
+	@Test
+	public void testSlowServerDoesNotBlockUI() throws Exception {
+		MockLanguageSever.INSTANCE.setSignatureHelp(createSignatureHelp("label"));
+
+		ITextViewer viewer = TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, "method(a) + other(b)"));
+		// makes sure the server is initialized
+		assertEquals(1, contentAssistProcessor.computeContextInformation(viewer, 7).length);
+
+		MockLanguageSever.INSTANCE.setTimeToProceedQueries(5000);
+		long start = System.currentTimeMillis();
+		assertEquals(0, contentAssistProcessor.computeContextInformation(viewer, 18).length);
+		Assert.assertTrue("context information should not wait for the slow server",
+				System.currentTimeMillis() - start < 3000);
+	}
+
+	private SignatureHelp createSignatureHelp(String label) {
+		SignatureHelp signatureHelp = new SignatureHelp();
+		signatureHelp.setSignatures(Collections.singletonList(new SignatureInformation(label, (String) null, Collections.emptyList())));
+		return signatureHelp;
+	}
+
 	@Test
 	public void testTriggerChars() throws CoreException, InvocationTargetException {
 		Set<String> triggers = new HashSet<>();
@@ -89,6 +132,13 @@ public class ContextInformationTest {
 		String content = "First";
 		TestUtils.openTextViewer(TestUtils.createUniqueTestFile(project, content));
 
+		// trigger characters are available once the server is initialized, without waiting for it
+		new DisplayHelper() {
+			@Override
+			protected boolean condition() {
+				return contentAssistProcessor.getContextInformationAutoActivationCharacters().length > 0;
+			}
+		}.waitForCondition(Display.getCurrent(), 3000);
 		assertArrayEquals(new char[] { 'a', 'b' },
 				contentAssistProcessor.getContextInformationAutoActivationCharacters());
 	}
@@ -11,17 +11,22 @@
 package org.eclipse.lsp4e.test.diagnostics;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.lsp4e.operations.diagnostics.LSPDiagnosticsToMarkers;
 import org.eclipse.lsp4e.test.TestUtils;
 import org.eclipse.lsp4e.tests.mock.MockLanguageSever;
@@ -53,7 +58,7 @@ public class DiagnosticsTest {
 	}
 
 	@Test
-	public void testDiagnostics() throws CoreException {
+	public void testDiagnostics() throws Exception {
 		IFile file = TestUtils.createUniqueTestFile(project, "Diagnostic Other Text");
 
 		Range range = new Range(new Position(0, 0), new Position(0, 10));
@@ -64,6 +69,7 @@ public class DiagnosticsTest {
 		diagnostics.add(createDiagnostic("4", "message4", range, DiagnosticSeverity.Hint, "source4"));
 
 		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(file.getLocationURI().toString(), diagnostics));
+		waitForMarkersUpdate();
 
 		IMarker[] markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false,
 				IResource.DEPTH_INFINITE);
@@ -81,13 +87,14 @@ public class DiagnosticsTest {
 		}
 
 		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(file.getLocationURI().toString(), Collections.emptyList()));
+		waitForMarkersUpdate();
 
 		markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_INFINITE);
 		assertEquals(0, markers.length);
 	}
 
 	@Test
-	public void testDiagnosticsRangeAfterDocument() throws CoreException {
+	public void testDiagnosticsRangeAfterDocument() throws Exception {
 		String content = "Diagnostic Other Text";
 		IFile file = TestUtils.createUniqueTestFile(project, content);
 
@@ -96,6 +103,7 @@ public class DiagnosticsTest {
 				.singletonList(createDiagnostic("1", "message1", range, DiagnosticSeverity.Error, "source1"));
 
 		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(file.getLocationURI().toString(), diagnostics));
+		waitForMarkersUpdate();
 
 		IMarker[] markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false,
 				IResource.DEPTH_INFINITE);
@@ -129,6 +137,73 @@ public class DiagnosticsTest {
 		assertEquals("there should be 1 marker for each language server", 2, markers.length);
 	}
 
+	@Test
+	public void testLatestDiagnosticsApplied() throws Exception {
+		IFile file = TestUtils.createUniqueTestFile(project, "Diagnostic Other Text");
+		String uri = file.getLocationURI().toString();
+		Range range = new Range(new Position(0, 0), new Position(0, 10));
+
+		Job.getJobManager().beginRule(file, new NullProgressMonitor());
+		try {
+			// updates are pending while the rule is held
+			diagnosticsToMarkers.accept(new PublishDiagnosticsParams(uri,
+					Collections.singletonList(createDiagnostic("1", "message1", range, DiagnosticSeverity.Error, "source1"))));
+			diagnosticsToMarkers.accept(new PublishDiagnosticsParams(uri,
+					Collections.singletonList(createDiagnostic("2", "message2", range, DiagnosticSeverity.Error, "source2"))));
+		} finally {
+			Job.getJobManager().endRule(file);
+		}
+		waitForMarkersUpdate();
+
+		IMarker[] markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ZERO);
+		assertEquals(1, markers.length);
+		assertEquals("message2", MarkerUtilities.getMessage(markers[0]));
+	}
+
+	@Test
+	public void testUnchangedDiagnosticsReuseMarkers() throws Exception {
+		IFile file = TestUtils.createUniqueTestFile(project, "Diagnostic Other Text");
+		String uri = file.getLocationURI().toString();
+		Diagnostic kept = createDiagnostic("1", "message1", new Range(new Position(0, 0), new Position(0, 10)),
+				DiagnosticSeverity.Error, "source1");
+		Diagnostic removed = createDiagnostic("2", "message2", new Range(new Position(0, 11), new Position(0, 16)),
+				DiagnosticSeverity.Warning, "source2");
+
+		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(uri, Arrays.asList(kept, removed)));
+		waitForMarkersUpdate();
+		IMarker[] markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ZERO);
+		assertEquals(2, markers.length);
+		long keptMarkerId = Arrays.stream(markers)
+				.filter(marker -> "message1".equals(MarkerUtilities.getMessage(marker))).findFirst().get().getId();
+
+		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(uri, Collections.singletonList(kept)));
+		waitForMarkersUpdate();
+		markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ZERO);
+		assertEquals(1, markers.length);
+		assertEquals(keptMarkerId, markers[0].getId());
+	}
+
+	@Test
+	public void testDiagnosticsWithoutBuffer() throws Exception {
+		IFile file = TestUtils.createUniqueTestFile(project, "line1\r\nline2\nline3");
+		Range range = new Range(new Position(2, 1), new Position(2, 3));
+		diagnosticsToMarkers.accept(new PublishDiagnosticsParams(file.getLocationURI().toString(),
+				Collections.singletonList(createDiagnostic("1", "message1", range, DiagnosticSeverity.Error, "source1"))));
+		waitForMarkersUpdate();
+
+		IMarker[] markers = file.findMarkers(LSPDiagnosticsToMarkers.LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ZERO);
+		assertEquals(1, markers.length);
+		assertEquals(14, MarkerUtilities.getCharStart(markers[0]));
+		assertEquals(16, MarkerUtilities.getCharEnd(markers[0]));
+		assertEquals(3, MarkerUtilities.getLineNumber(markers[0]));
+		assertNull("no buffer should be created to compute marker offsets",
+				FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE));
+	}
+
+	private void waitForMarkersUpdate() throws InterruptedException {
+		Job.getJobManager().join(diagnosticsToMarkers, new NullProgressMonitor());
+	}
+
 	private Diagnostic createDiagnostic(String code, String message, Range range, DiagnosticSeverity severity,
 			String source) {
 		Diagnostic diagnostic = new Diagnostic();
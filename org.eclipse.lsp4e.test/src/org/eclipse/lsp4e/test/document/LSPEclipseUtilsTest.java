@@ -19,6 +19,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.lsp4e.LSPEclipseUtils;
@@ -134,6 +135,23 @@ public class LSPEclipseUtilsTest {
 		}
 	}
 	
+	@Test
+	public void testUTF16Columns() throws Exception {
+		// LSP characters are UTF-16 code units, so a surrogate pair counts for 2
+		IDocument document = new Document("a\uD83D\uDE00b\n\uD83D\uDE00");
+		Position position = LSPEclipseUtils.toPosition(3, document);
+		Assert.assertEquals(0, position.getLine());
+		Assert.assertEquals(3, position.getCharacter());
+		Assert.assertEquals(3, LSPEclipseUtils.toOffset(position, document));
+		Assert.assertEquals(7, LSPEclipseUtils.toOffset(new Position(1, 2), document));
+	}
+
+	@Test
+	public void testLineAfterLastLine() throws Exception {
+		IDocument document = new Document("content");
+		Assert.assertEquals(document.getLength(), LSPEclipseUtils.toOffset(new Position(1, 0), document));
+	}
+
 	@Test
 	public void testURICreationUnix() {
 		Assume.assumeFalse(Platform.OS_WIN32.equals(Platform.getOS()));
@@ -12,6 +12,7 @@
 package org.eclipse.lsp4e.test.edit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
 import java.util.concurrent.CompletableFuture;
@@ -22,7 +23,11 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.lsp4e.LanguageServerPlugin;
+import org.eclipse.lsp4e.LanguageServerWrapper;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.test.TestUtils;
 import org.eclipse.lsp4e.tests.mock.MockLanguageSever;
@@ -39,6 +44,8 @@ import org.junit.Test;
 
 public class DocumentDidChangeTest {
 
+	private static final String BATCHING_DELAY_PREFERENCE = "org.eclipse.lsp4e.didChange.batchingDelay";
+
 	private IProject project;
 
 	@Before
@@ -199,6 +206,69 @@ public class DocumentDidChangeTest {
 		((AbstractTextEditor)editor).close(false);
 	}
 
+	@Test
+	public void testIncrementalSync_batched() throws Exception {
+		MockLanguageSever.INSTANCE.getInitializeResult().getCapabilities()
+				.setTextDocumentSync(TextDocumentSyncKind.Incremental);
+		IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode(LanguageServerPlugin.PLUGIN_ID);
+		preferences.putInt(BATCHING_DELAY_PREFERENCE, 300);
+		try {
+			IFile testFile = TestUtils.createUniqueTestFile(project, "");
+			IEditorPart editor = TestUtils.openEditor(testFile);
+			ITextViewer viewer = TestUtils.getTextViewer(editor);
+			LanguageServiceAccessor.getInitializedLanguageServers(testFile, t -> true).iterator().next().get(1000, TimeUnit.MILLISECONDS);
+
+			CompletableFuture<DidChangeTextDocumentParams> didChangeExpectation = new CompletableFuture<DidChangeTextDocumentParams>();
+			MockLanguageSever.INSTANCE.setDidChangeCallback(didChangeExpectation);
+			viewer.getDocument().replace(0, 0, "a");
+			viewer.getDocument().replace(1, 0, "b");
+			viewer.getDocument().replace(0, 0, "\n");
+			DidChangeTextDocumentParams lastChange = didChangeExpectation.get(1000, TimeUnit.MILLISECONDS);
+			assertEquals(2, lastChange.getContentChanges().size());
+			TextDocumentContentChangeEvent change0 = lastChange.getContentChanges().get(0);
+			assertEquals("ab", change0.getText());
+			assertEquals(0, change0.getRange().getStart().getCharacter());
+			assertEquals(0, change0.getRange().getEnd().getCharacter());
+			TextDocumentContentChangeEvent change1 = lastChange.getContentChanges().get(1);
+			assertEquals("\n", change1.getText());
+			assertEquals(0, change1.getRange().getStart().getLine());
+			assertEquals(0, change1.getRange().getStart().getCharacter());
+
+			((AbstractTextEditor)editor).close(false);
+		} finally {
+			preferences.remove(BATCHING_DELAY_PREFERENCE);
+		}
+	}
+
+	@Test
+	public void testSyncedDocumentVersionFlushesPendingChanges() throws Exception {
+		MockLanguageSever.INSTANCE.getInitializeResult().getCapabilities()
+				.setTextDocumentSync(TextDocumentSyncKind.Incremental);
+		IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode(LanguageServerPlugin.PLUGIN_ID);
+		preferences.putInt(BATCHING_DELAY_PREFERENCE, 60000);
+		try {
+			IFile testFile = TestUtils.createUniqueTestFile(project, "");
+			IEditorPart editor = TestUtils.openEditor(testFile);
+			ITextViewer viewer = TestUtils.getTextViewer(editor);
+			LanguageServiceAccessor.getInitializedLanguageServers(testFile, t -> true).iterator().next().get(1000, TimeUnit.MILLISECONDS);
+			LanguageServerWrapper wrapper = LanguageServiceAccessor.getLSWrappers(testFile, t -> true).iterator().next();
+
+			CompletableFuture<DidChangeTextDocumentParams> didChangeExpectation = new CompletableFuture<DidChangeTextDocumentParams>();
+			MockLanguageSever.INSTANCE.setDidChangeCallback(didChangeExpectation);
+			viewer.getDocument().replace(0, 0, "Hello");
+			assertFalse(didChangeExpectation.isDone());
+			// didOpen was version 1
+			assertEquals(Integer.valueOf(2), wrapper.getSyncedDocumentVersion(viewer.getDocument()).get(1000, TimeUnit.MILLISECONDS));
+			DidChangeTextDocumentParams lastChange = didChangeExpectation.get(1000, TimeUnit.MILLISECONDS);
+			assertEquals(Integer.valueOf(2), lastChange.getTextDocument().getVersion());
+			assertEquals("Hello", lastChange.getContentChanges().get(0).getText());
+
+			((AbstractTextEditor)editor).close(false);
+		} finally {
+			preferences.remove(BATCHING_DELAY_PREFERENCE);
+		}
+	}
+
 	private TextDocumentSyncKind getDocumentSyncKind(ServerCapabilities t) {
 		TextDocumentSyncKind syncKind = null;
 		if (t.getTextDocumentSync().isLeft()) {
@@ -38,6 +38,7 @@ import org.eclipse.lsp4j.CodeLensOptions;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
 import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.RegistrationParams;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.SignatureHelp;
 import org.eclipse.lsp4j.SignatureHelpOptions;
@@ -185,6 +186,10 @@ public final class MockLanguageSever implements LanguageServer {
 		}
 	}
 
+	public void registerCapability(RegistrationParams params) {
+		this.textDocumentService.registerCapability(params);
+	}
+
 	public InitializeResult getInitializeResult() {
 		return initializeResult;
 	}
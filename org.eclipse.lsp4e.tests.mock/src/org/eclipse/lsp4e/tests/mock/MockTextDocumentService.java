@@ -40,6 +40,7 @@ import org.eclipse.lsp4j.Hover;
 import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
 import org.eclipse.lsp4j.ReferenceParams;
+import org.eclipse.lsp4j.RegistrationParams;
 import org.eclipse.lsp4j.RenameParams;
 import org.eclipse.lsp4j.SignatureHelp;
 import org.eclipse.lsp4j.SymbolInformation;
@@ -71,6 +72,7 @@ public class MockTextDocumentService implements TextDocumentService {
 	private Location mockReferences;
 	private List<Diagnostic> diagnostics;
 	private List<Command> mockCodeActions;
+	private int resolveCompletionItemRequests;
 
 	public <U> MockTextDocumentService(Function<U, CompletableFuture<U>> futureFactory) {
 		this._futureFactory = futureFactory;
@@ -93,7 +95,11 @@ public class MockTextDocumentService implements TextDocumentService {
 
 	@Override
 	public CompletableFuture<CompletionItem> resolveCompletionItem(CompletionItem unresolved) {
-		return CompletableFuture.completedFuture(null);
+		resolveCompletionItemRequests++;
+		CompletionItem resolved = new CompletionItem();
+		resolved.setLabel(unresolved.getLabel());
+		resolved.setDetail("Resolved " + unresolved.getLabel());
+		return CompletableFuture.completedFuture(resolved);
 	}
 
 	@Override
@@ -103,7 +109,7 @@ public class MockTextDocumentService implements TextDocumentService {
 
 	@Override
 	public CompletableFuture<SignatureHelp> signatureHelp(TextDocumentPositionParams position) {
-		return CompletableFuture.completedFuture(mockSignatureHelp);
+		return futureFactory(mockSignatureHelp);
 	}
 
 	@Override
@@ -254,12 +260,21 @@ public class MockTextDocumentService implements TextDocumentService {
 		this.mockReferences = null;
 		this.remoteProxies = new ArrayList<LanguageClient>();
 		this.mockCodeActions = new ArrayList<Command>();
+		this.resolveCompletionItemRequests = 0;
+	}
+
+	public int getResolveCompletionItemRequests() {
+		return resolveCompletionItemRequests;
 	}
 
 	public void setDiagnostics(List<Diagnostic> diagnostics) {
 		this.diagnostics = diagnostics;
 	}
 
+	public void registerCapability(RegistrationParams params) {
+		this.remoteProxies.forEach(p -> p.registerCapability(params).join());
+	}
+
 	public void addRemoteProxy(LanguageClient remoteProxy) {
 		this.remoteProxies.add(remoteProxy);
 	}
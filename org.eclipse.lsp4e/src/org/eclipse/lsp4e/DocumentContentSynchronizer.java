@@ -12,9 +12,7 @@
 package org.eclipse.lsp4e;
 
 import java.io.File;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -22,8 +20,12 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DocumentEvent;
@@ -33,6 +35,7 @@ import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidCloseTextDocumentParams;
 import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.DidSaveTextDocumentParams;
+import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
@@ -43,14 +46,31 @@ import org.eclipse.lsp4j.services.LanguageServer;
 
 final class DocumentContentSynchronizer implements IDocumentListener {
 
+	/**
+	 * Preference key for the delay (in milliseconds) during which consecutive
+	 * document changes are collected and sent as a single didChange
+	 * notification. A value of 0 (default) sends every change immediately.
+	 */
+	public static final String CHANGE_BATCHING_DELAY_PREFERENCE = "org.eclipse.lsp4e.didChange.batchingDelay"; //$NON-NLS-1$
+
 	private final @NonNull LanguageServerWrapper languageServerWrapper;
 	private final String fileUri;
 	private final TextDocumentSyncKind syncKind;
 	private int version = 0;
-	private final DidChangeTextDocumentParams changeParams;
 	private long modificationStamp;
 	private @NonNull IDocument document;
 
+	private final int batchingDelay;
+	private final Job flushJob;
+	/** Incremental change computed before the document event is applied */
+	private TextDocumentContentChangeEvent changeEvent;
+	private final List<TextDocumentContentChangeEvent> pendingChanges = new ArrayList<>();
+	/**
+	 * Full text to send, taken when the document changed since the document
+	 * must not be read from the thread flushing the changes
+	 */
+	private String pendingFullText;
+
 	public DocumentContentSynchronizer(@NonNull LanguageServerWrapper languageServerWrapper,
 			@NonNull IDocument document,
 			@NonNull IPath filePath, TextDocumentSyncKind syncKind) {
@@ -59,10 +79,21 @@ final class DocumentContentSynchronizer implements IDocumentListener {
 		this.fileUri = LSPEclipseUtils.toUri(file).toString();
 		this.modificationStamp = file.lastModified();
 		this.syncKind = syncKind != null ? syncKind : TextDocumentSyncKind.Full;
-
-		// Initialize change params to avoid it during text typing
-		this.changeParams = new DidChangeTextDocumentParams(new VersionedTextDocumentIdentifier(), Collections.singletonList(new TextDocumentContentChangeEvent()));
-		this.changeParams.getTextDocument().setUri(fileUri);
+		this.batchingDelay = Math.max(0, Platform.getPreferencesService().getInt(LanguageServerPlugin.PLUGIN_ID,
+				CHANGE_BATCHING_DELAY_PREFERENCE, 0, null));
+		if (this.batchingDelay > 0) {
+			this.flushJob = new Job("Send document changes to " + languageServerWrapper.serverDefinition.label) { //$NON-NLS-1$
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					flushPendingChanges();
+					return Status.OK_STATUS;
+				}
+			};
+			this.flushJob.setSystem(true);
+			this.flushJob.setPriority(Job.INTERACTIVE);
+		} else {
+			this.flushJob = null;
+		}
 
 		this.document = document;
 		// add a document buffer
@@ -74,8 +105,8 @@ final class DocumentContentSynchronizer implements IDocumentListener {
 		IFile ifile= workspace.getRoot().getFileForLocation(filePath);
 
 		List<IContentType> contentTypes = new ArrayList<>();
-		try (InputStream contents = ifile.getContents()) {
-			contentTypes.addAll(Arrays.asList(Platform.getContentTypeManager().findContentTypesFor(contents, file.getName())));
+		try {
+			contentTypes.addAll(FileContentTypes.getContentTypes(ifile));
 		} catch (Exception e) {
 			LanguageServerPlugin.logError(e);
 		}
@@ -88,7 +119,7 @@ final class DocumentContentSynchronizer implements IDocumentListener {
 
 		textDocument.setLanguageId(languageId);
 		textDocument.setVersion(++version);
-		LanguageServer ls = languageServerWrapper.getServer();
+		LanguageServer ls = languageServerWrapper.getLaunchedServer();
 		if (ls != null) {
 			ls.getTextDocumentService().didOpen(new DidOpenTextDocumentParams(textDocument));
 		}
@@ -97,13 +128,26 @@ final class DocumentContentSynchronizer implements IDocumentListener {
 	@Override
 	public void documentChanged(DocumentEvent event) {
 		checkEvent(event);
-		if (syncKind == TextDocumentSyncKind.Full) {
-			updateChangeEvent(event);
+		if (syncKind == TextDocumentSyncKind.None) {
+			return;
 		}
-		changeParams.getTextDocument().setVersion(++version);
-		LanguageServer ls = languageServerWrapper.getServer();
-		if (ls != null) {
-			ls.getTextDocumentService().didChange(changeParams);
+		synchronized (pendingChanges) {
+			boolean flushScheduled = pendingFullText != null || !pendingChanges.isEmpty();
+			if (syncKind == TextDocumentSyncKind.Incremental && changeEvent != null) {
+				addPendingChange(changeEvent);
+				changeEvent = null;
+			} else {
+				// Full sync, or incremental range could not be computed
+				pendingChanges.clear();
+				pendingFullText = document.get();
+			}
+			if (flushJob == null) {
+				flushPendingChanges();
+			} else if (!flushScheduled) {
+				// don't postpone an already scheduled flush so that continuous
+				// typing still reaches the server after at most batchingDelay
+				flushJob.schedule(batchingDelay);
+			}
 		}
 	}
 
@@ -113,78 +157,115 @@ final class DocumentContentSynchronizer implements IDocumentListener {
 		if (syncKind == TextDocumentSyncKind.Incremental) {
 			// this really needs to happen before event gets actually
 			// applied, to properly compute positions
-			updateChangeEvent(event);
+			changeEvent = toChangeEvent(event);
 		}
 	}
 
 	/**
-	 * Convert Eclipse {@link DocumentEvent} to LS according {@link TextDocumentSyncKind}.
-	 * {@link TextDocumentContentChangeEventImpl}.
+	 * Convert Eclipse {@link DocumentEvent} to an incremental LS
+	 * {@link TextDocumentContentChangeEvent}.
 	 *
 	 * @param event
 	 *            Eclipse {@link DocumentEvent}
-	 * @return true if change event is ready to be sent
+	 * @return the change event, or <code>null</code> if the range couldn't be
+	 *         computed and the full text needs to be sent instead
 	 */
-	private boolean updateChangeEvent(DocumentEvent event) {
+	private TextDocumentContentChangeEvent toChangeEvent(DocumentEvent event) {
 		IDocument document = event.getDocument();
-		TextDocumentContentChangeEvent changeEvent = null;
-		TextDocumentSyncKind syncKind = getTextDocumentSyncKind();
-		switch (syncKind) {
-		case None:
-			return false;
-		case Full:
-			changeParams.getContentChanges().get(0).setText(event.getDocument().get());
-			break;
-		case Incremental:
-			changeEvent = changeParams.getContentChanges().get(0);
-			String newText = event.getText();
-			int offset = event.getOffset();
-			int length = event.getLength();
-			try {
-				// try to convert the Eclipse start/end offset to LS range.
-				Range range = new Range(LSPEclipseUtils.toPosition(offset, document),
-						LSPEclipseUtils.toPosition(offset + length, document));
-				changeEvent.setRange(range);
-				changeEvent.setText(newText);
-				changeEvent.setRangeLength(length);
-			} catch (BadLocationException e) {
-				// error while conversion (should never occur)
-				// set the full document text as changes.
-				changeEvent.setText(document.get());
+		int offset = event.getOffset();
+		int length = event.getLength();
+		try {
+			// try to convert the Eclipse start/end offset to LS range.
+			Range range = new Range(LSPEclipseUtils.toPosition(offset, document),
+					LSPEclipseUtils.toPosition(offset + length, document));
+			return new TextDocumentContentChangeEvent(range, length, event.getText());
+		} catch (BadLocationException e) {
+			// error while conversion (should never occur)
+			return null;
+		}
+	}
+
+	/**
+	 * Appends the change to the pending ones, merging it with the previous
+	 * change when both are insertions of single-line text one right after the
+	 * other (ie regular typing).
+	 */
+	private void addPendingChange(@NonNull TextDocumentContentChangeEvent change) {
+		if (!pendingChanges.isEmpty()) {
+			TextDocumentContentChangeEvent previous = pendingChanges.get(pendingChanges.size() - 1);
+			if (isSingleLineInsertion(previous) && isSingleLineInsertion(change)) {
+				Position end = previous.getRange().getEnd();
+				Position start = change.getRange().getStart();
+				if (end.getLine() == start.getLine()
+						&& end.getCharacter() + previous.getText().length() == start.getCharacter()) {
+					previous.setText(previous.getText() + change.getText());
+					return;
+				}
 			}
-			break;
 		}
-		return true;
+		pendingChanges.add(change);
+	}
+
+	private static boolean isSingleLineInsertion(TextDocumentContentChangeEvent change) {
+		return change.getRange() != null && change.getRangeLength() != null && change.getRangeLength().intValue() == 0
+				&& change.getText() != null && change.getText().indexOf('\n') < 0 && change.getText().indexOf('\r') < 0;
+	}
+
+	/**
+	 * Sends the pending changes, if any, to the language server as a single
+	 * didChange notification.
+	 *
+	 * @return the version of the document known by the language server
+	 */
+	int flushPendingChanges() {
+		synchronized (pendingChanges) {
+			if (pendingFullText == null && pendingChanges.isEmpty()) {
+				return version;
+			}
+			List<TextDocumentContentChangeEvent> changes;
+			if (pendingFullText != null) {
+				changes = Collections.singletonList(new TextDocumentContentChangeEvent(pendingFullText));
+			} else {
+				changes = new ArrayList<>(pendingChanges);
+			}
+			pendingChanges.clear();
+			pendingFullText = null;
+			// version is incremented and sent while holding the lock so
+			// notifications are always written in version order
+			VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier(++version);
+			identifier.setUri(fileUri);
+			LanguageServer ls = languageServerWrapper.getLaunchedServer();
+			if (ls != null) {
+				ls.getTextDocumentService().didChange(new DidChangeTextDocumentParams(identifier, changes));
+			}
+			return version;
+		}
 	}
 
 	public void documentSaved(long timestamp) {
+		flushPendingChanges();
 		this.modificationStamp = timestamp;
 		TextDocumentIdentifier identifier = new TextDocumentIdentifier(fileUri);
 		DidSaveTextDocumentParams params = new DidSaveTextDocumentParams(identifier, document.get());
-		LanguageServer ls = languageServerWrapper.getServer();
+		LanguageServer ls = languageServerWrapper.getLaunchedServer();
 		if (ls != null) {
 			ls.getTextDocumentService().didSave(params);
 		}
 	}
 
 	public void documentClosed() {
+		if (flushJob != null) {
+			flushJob.cancel();
+		}
+		flushPendingChanges();
 		TextDocumentIdentifier identifier = new TextDocumentIdentifier(fileUri);
 		DidCloseTextDocumentParams params = new DidCloseTextDocumentParams(identifier);
-		LanguageServer ls = languageServerWrapper.getServer();
+		LanguageServer ls = languageServerWrapper.getLaunchedServer();
 		if (ls != null) {
 			ls.getTextDocumentService().didClose(params);
 		}
 	}
 
-	/**
-	 * Returns the text document sync kind capabilities of the server and {@link TextDocumentSyncKind#Full} otherwise.
-	 *
-	 * @return the text document sync kind capabilities of the server and {@link TextDocumentSyncKind#Full} otherwise.
-	 */
-	private TextDocumentSyncKind getTextDocumentSyncKind() {
-		return syncKind;
-	}
-
 	protected long getModificationStamp() {
 		return modificationStamp;
 	}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Content types of files, kept in a small cache as long as the file isn't
+ * modified, so that features don't read and sniff the file content each time
+ * they look for the language servers of a file. When none of the content types
+ * matching the file name has a content describer, the content isn't read at
+ * all.
+ */
+final class FileContentTypes {
+
+	private static final int CACHE_SIZE = 256;
+
+	private static final String[] CONTENT_TYPES_EXTENSION_POINTS = { "org.eclipse.core.contenttype.contentTypes", //$NON-NLS-1$
+			"org.eclipse.core.runtime.contentTypes" }; //$NON-NLS-1$
+
+	private static final Map<IFile, FileContentTypes> CACHE = new LinkedHashMap<IFile, FileContentTypes>(CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<IFile, FileContentTypes> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/** ids of the content types declaring a describer, computed lazily */
+	private static @Nullable Set<String> contentTypesWithDescriber;
+
+	static {
+		Platform.getContentTypeManager().addContentTypeChangeListener(event -> clear());
+	}
+
+	private final long modificationStamp;
+	private final @NonNull List<IContentType> contentTypes;
+
+	private FileContentTypes(long modificationStamp, @NonNull List<IContentType> contentTypes) {
+		this.modificationStamp = modificationStamp;
+		this.contentTypes = contentTypes;
+	}
+
+	/**
+	 * @return the content types of the file, most relevant first
+	 */
+	static @NonNull List<IContentType> getContentTypes(@NonNull IFile file) throws CoreException, IOException {
+		return get(file).contentTypes;
+	}
+
+	private static @NonNull FileContentTypes get(@NonNull IFile file) throws CoreException, IOException {
+		long modificationStamp = file.getModificationStamp();
+		synchronized (CACHE) {
+			FileContentTypes cached = CACHE.get(file);
+			if (cached != null && cached.modificationStamp == modificationStamp) {
+				return cached;
+			}
+		}
+		FileContentTypes res = new FileContentTypes(modificationStamp, Collections.unmodifiableList(compute(file)));
+		synchronized (CACHE) {
+			CACHE.put(file, res);
+		}
+		return res;
+	}
+
+	private static @NonNull List<IContentType> compute(@NonNull IFile file) throws CoreException, IOException {
+		IContentTypeManager manager = Platform.getContentTypeManager();
+		IContentType[] byName = manager.findContentTypesFor(file.getName());
+		if (!hasDescriber(byName)) {
+			// content can't change the result
+			return Arrays.asList(byName);
+		}
+		try (InputStream contents = file.getContents()) {
+			return Arrays.asList(manager.findContentTypesFor(contents, file.getName()));
+		}
+	}
+
+	private static boolean hasDescriber(IContentType[] contentTypes) {
+		Set<String> withDescriber = getContentTypesWithDescriber();
+		for (IContentType contentType : contentTypes) {
+			// describers are inherited from base types
+			for (IContentType type = contentType; type != null; type = type.getBaseType()) {
+				if (withDescriber.contains(type.getId())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static synchronized @NonNull Set<String> getContentTypesWithDescriber() {
+		Set<String> res = contentTypesWithDescriber;
+		if (res == null) {
+			res = new HashSet<>();
+			for (String extensionPoint : CONTENT_TYPES_EXTENSION_POINTS) {
+				for (IConfigurationElement element : Platform.getExtensionRegistry()
+						.getConfigurationElementsFor(extensionPoint)) {
+					String id = element.getAttribute("id"); //$NON-NLS-1$
+					if (!"content-type".equals(element.getName()) || id == null) { //$NON-NLS-1$
+						continue;
+					}
+					if (element.getAttribute("describer") != null || element.getChildren("describer").length > 0) { //$NON-NLS-1$ //$NON-NLS-2$
+						res.add(id.indexOf('.') < 0 ? element.getNamespaceIdentifier() + '.' + id : id);
+					}
+				}
+			}
+			contentTypesWithDescriber = res;
+		}
+		return res;
+	}
+
+	static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+		synchronized (FileContentTypes.class) {
+			contentTypesWithDescriber = null;
+		}
+	}
+
+}
@@ -104,6 +104,10 @@ public class LSPEclipseUtils {
 		return null;
 	}
 
+	/**
+	 * Converts an offset in the document to a LSP position. Characters are
+	 * counted in UTF-16 code units, as both Java and LSP do.
+	 */
 	public static Position toPosition(int offset, IDocument document) throws BadLocationException {
 		Position res = new Position();
 		res.setLine(document.getLineOfOffset(offset));
@@ -111,6 +115,10 @@ public class LSPEclipseUtils {
 		return res;
 	}
 
+	/**
+	 * Converts a LSP position to an offset in the document. Characters are
+	 * counted in UTF-16 code units, as both Java and LSP do.
+	 */
 	public static int toOffset(Position position, IDocument document) throws BadLocationException {
 		return document.getLineInformation(position.getLine()).getOffset() + position.getCharacter();
 	}
@@ -34,10 +34,14 @@ public class LanguageServerPlugin extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		MemoryPressureMonitor.install();
+		LanguageServerWarmUp.install();
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		LanguageServerWarmUp.uninstall();
+		MemoryPressureMonitor.uninstall();
 		plugin = null;
 		super.stop(context);
 	}
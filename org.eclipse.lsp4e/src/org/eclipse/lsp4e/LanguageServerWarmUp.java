@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.lsp4e.LanguageServersRegistry.LanguageServerDefinition;
+import org.eclipse.lsp4e.ui.Messages;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Starts, when enabled with {@link #WARM_UP_PREFERENCE}, the language servers
+ * of the open projects in background on workspace startup and when a project
+ * gets opened, so that the first request doesn't wait for initialization.
+ * Servers are picked by the names of the files of the project. Only a few of
+ * them are initialized at once, so that they don't starve the rest of the
+ * startup.
+ * <p>
+ * Warmed up servers no document got connected to are stopped after
+ * {@link #WARM_UP_TIMEOUT_PREFERENCE}, or when memory runs low.
+ */
+public class LanguageServerWarmUp implements IStartup {
+
+	/** Whether language servers are started before a document gets opened, false by default */
+	public static final String WARM_UP_PREFERENCE = "org.eclipse.lsp4e.warmUp"; //$NON-NLS-1$
+	/** Maximum number of language servers initialized at once by the warm up, 2 by default */
+	public static final String WARM_UP_MAX_CONCURRENT_PREFERENCE = "org.eclipse.lsp4e.warmUp.maxConcurrent"; //$NON-NLS-1$
+	/**
+	 * Delay in milliseconds after which warmed up servers no document got
+	 * connected to are stopped, 5 minutes by default, 0 to stop them as soon as
+	 * initialized
+	 */
+	public static final String WARM_UP_TIMEOUT_PREFERENCE = "org.eclipse.lsp4e.warmUp.timeout"; //$NON-NLS-1$
+
+	/** delay after which a server still initializing doesn't count as initializing anymore */
+	private static final long INITIALIZE_TIMEOUT = 60000;
+
+	private static final IResourceChangeListener PROJECT_OPEN_LISTENER = event -> {
+		if (event.getDelta() == null || !isEnabled()) {
+			return;
+		}
+		for (IResourceDelta delta : event.getDelta().getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.CHANGED)) {
+			IResource resource = delta.getResource();
+			boolean opened = delta.getKind() == IResourceDelta.ADDED || (delta.getFlags() & IResourceDelta.OPEN) != 0;
+			if (opened && resource instanceof IProject && ((IProject) resource).isOpen()) {
+				warmUp((IProject) resource);
+			}
+		}
+	};
+
+	private static final Semaphore initializingServers = new Semaphore(Math.max(1,
+			Platform.getPreferencesService().getInt(LanguageServerPlugin.PLUGIN_ID, WARM_UP_MAX_CONCURRENT_PREFERENCE, 2, null)));
+
+	@Override
+	public void earlyStartup() {
+		if (!isEnabled()) {
+			return;
+		}
+		for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+			if (project.isOpen()) {
+				warmUp(project);
+			}
+		}
+	}
+
+	static void install() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(PROJECT_OPEN_LISTENER, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	static void uninstall() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(PROJECT_OPEN_LISTENER);
+	}
+
+	private static boolean isEnabled() {
+		return Platform.getPreferencesService().getBoolean(LanguageServerPlugin.PLUGIN_ID, WARM_UP_PREFERENCE, false, null);
+	}
+
+	private static void warmUp(@NonNull IProject project) {
+		Job job = new Job(NLS.bind(Messages.warmUpLanguageServers_job, project.getName())) {
+			@Override
+			@SuppressWarnings("deprecation")
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					for (LanguageServerDefinition serverDefinition : findServerDefinitions(project, monitor)) {
+						while (!initializingServers.tryAcquire(500, TimeUnit.MILLISECONDS)) {
+							if (monitor.isCanceled()) {
+								return Status.CANCEL_STATUS;
+							}
+						}
+						if (!project.isOpen()) {
+							initializingServers.release();
+							return Status.OK_STATUS;
+						}
+						Runnable release = releaseOnce();
+						LanguageServerWrapper wrapper;
+						try {
+							wrapper = LanguageServiceAccessor.getLSWrapperForConnection(project, serverDefinition);
+						} catch (IOException e) {
+							release.run();
+							throw e;
+						}
+						// a server which never answers doesn't hold its permit forever
+						Job releaseJob = new Job(getName()) {
+							@Override
+							protected IStatus run(IProgressMonitor releaseMonitor) {
+								release.run();
+								return Status.OK_STATUS;
+							}
+						};
+						releaseJob.setSystem(true);
+						releaseJob.schedule(INITIALIZE_TIMEOUT);
+						wrapper.getInitializedServer().whenComplete((server, error) -> {
+							releaseJob.cancel();
+							release.run();
+							wrapper.setIdle(Platform.getPreferencesService().getLong(LanguageServerPlugin.PLUGIN_ID,
+									WARM_UP_TIMEOUT_PREFERENCE, 300000, null));
+						});
+					}
+				} catch (OperationCanceledException | InterruptedException e) {
+					return Status.CANCEL_STATUS;
+				} catch (CoreException | IOException e) {
+					LanguageServerPlugin.logError(e);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		job.schedule();
+	}
+
+	/**
+	 * @return a runnable releasing a permit the first time it's run
+	 */
+	private static Runnable releaseOnce() {
+		AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			if (released.compareAndSet(false, true)) {
+				initializingServers.release();
+			}
+		};
+	}
+
+	/**
+	 * @return the definitions of the language servers matching the names of
+	 *         the files of the project
+	 */
+	private static Set<LanguageServerDefinition> findServerDefinitions(@NonNull IProject project, IProgressMonitor monitor)
+			throws CoreException {
+		Set<LanguageServerDefinition> res = new LinkedHashSet<>();
+		LanguageServersRegistry registry = LanguageServersRegistry.getInstance();
+		Set<LanguageServerDefinition> allDefinitions = new HashSet<>();
+		registry.getContentTypeToLSPExtensions().forEach(mapping -> allDefinitions.add(mapping.getValue()));
+		registry.getContentTypeToLSPLaunches().forEach(mapping -> allDefinitions.add(mapping.getValue()));
+		// definitions by file extension, or by name for files without extension
+		Map<String, Set<LanguageServerDefinition>> definitionsByExtension = new HashMap<>();
+		try {
+			project.accept(proxy -> {
+				if (monitor.isCanceled()) {
+					throw new OperationCanceledException();
+				}
+				if (proxy.getType() == IResource.FILE) {
+					String name = proxy.getName();
+					int dot = name.lastIndexOf('.');
+					String extension = dot >= 0 ? name.substring(dot) : name;
+					res.addAll(definitionsByExtension.computeIfAbsent(extension, key -> {
+						Set<LanguageServerDefinition> definitions = new HashSet<>();
+						for (IContentType contentType : Platform.getContentTypeManager().findContentTypesFor(name)) {
+							for (ContentTypeToLanguageServerDefinition mapping : registry.findProvidersIncludingBaseTypes(contentType)) {
+								definitions.add(mapping.getValue());
+							}
+						}
+						return definitions;
+					}));
+					if (res.containsAll(allDefinitions)) {
+						throw new AllDefinitionsFoundException();
+					}
+				}
+				return !proxy.isDerived() && !proxy.isTeamPrivateMember();
+			}, IResource.NONE);
+		} catch (AllDefinitionsFoundException e) {
+			// no need to look at the other files
+		}
+		return res;
+	}
+
+	/** Stops visiting the files of a project */
+	private static final class AllDefinitionsFoundException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+}
@@ -15,16 +15,19 @@ package org.eclipse.lsp4e;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -43,6 +46,7 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -86,11 +90,36 @@ import org.eclipse.lsp4j.jsonrpc.messages.Message;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
 import org.eclipse.lsp4j.services.LanguageServer;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.PlatformUI;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
 public class LanguageServerWrapper {
 
+	/**
+	 * Preference holding how long, in milliseconds, a language server is kept
+	 * running once its last document is closed, so that reopening a document
+	 * soon after reuses it. Can be set for a single server definition by
+	 * appending <code>'.' + definition id</code> to the key. Defaults to 0,
+	 * stopping the server right away.
+	 */
+	public static final String IDLE_TIMEOUT_PREFERENCE = "org.eclipse.lsp4e.idleTimeout"; //$NON-NLS-1$
+
+	private static final char[] NO_CHARACTERS = new char[0];
+	private static final String COMPLETION_METHOD = "textDocument/completion"; //$NON-NLS-1$
+	private static final String SIGNATURE_HELP_METHOD = "textDocument/signatureHelp"; //$NON-NLS-1$
+	private static final int DOCUMENT_LOCK_STRIPES = 16;
+	/** launches and shuts language servers down, off the calling (UI or RPC) threads */
+	private static final ExecutorService LIFECYCLE_EXECUTOR = RpcExecutor.DEFAULT_FACTORY
+			.create("LSP4E lifecycle", 4); //$NON-NLS-1$
+
+	private enum State {
+		STARTING, INITIALIZED, STOPPING, STOPPED
+	}
+
 	private IFileBufferListener fileBufferListener = new FileBufferListenerAdapter() {
 			@Override
 			public void bufferDisposed(IFileBuffer buffer) {
@@ -133,48 +162,151 @@ public class LanguageServerWrapper {
 	@NonNull protected final Set<@NonNull IProject> allWatchedProjects;
 	@NonNull protected Map<@NonNull IPath, @NonNull DocumentContentSynchronizer> connectedDocuments;
 
-	protected StreamConnectionProvider lspStreamProvider;
-	private Future<?> launcherFuture;
-	private CompletableFuture<Void> initializeFuture;
-	private LanguageServer languageServer;
+	protected volatile StreamConnectionProvider lspStreamProvider;
+	private volatile Future<?> launcherFuture;
+	private volatile RpcExecutor rpcExecutor;
+	private volatile CompletableFuture<Void> initializeFuture;
+	private volatile LanguageServer languageServer;
+	private volatile @NonNull State state = State.STOPPED;
+	/** completes once the process is launched and connected */
+	private CompletableFuture<Void> launchFuture;
+	/** completes once the last instance is shut down, a new one is launched only then */
+	private @NonNull CompletableFuture<Void> stopFuture = CompletableFuture.completedFuture(null);
 	private ServerCapabilities serverCapabilities;
 	private boolean capabilitiesAlreadyRequested;
 	private long initializeStartTime;
 	private boolean supportWorkspaceFoldersCapability;
+	/** Replaced, never modified, so that consumers can detect changes by identity */
+	private volatile char[] completionTriggerCharacters = NO_CHARACTERS;
+	private volatile char[] signatureHelpTriggerCharacters = NO_CHARACTERS;
+	/**
+	 * Locks serializing the connection and disconnection of a same document,
+	 * picked by path so that different documents don't contend.
+	 */
+	private final Object[] documentLocks = new Object[DOCUMENT_LOCK_STRIPES];
+	/** documents being closed in background, connected again only once closed */
+	private final Map<IPath, CompletableFuture<Void>> closingDocuments = new ConcurrentHashMap<>();
+	/** whether no document is connected and the server waits to be stopped */
+	private volatile boolean idle;
+	private final Job stopIdleJob;
+	private final @NonNull RequestScheduler requestScheduler;
+	private final @NonNull ResponseCache responseCache;
 
 	public LanguageServerWrapper(@Nullable IProject project, @NonNull LanguageServerDefinition serverDefinition) {
 		this.initialProject = project;
-		this.allWatchedProjects = new HashSet<>();
+		this.allWatchedProjects = ConcurrentHashMap.newKeySet();
 		this.serverDefinition = serverDefinition;
-		this.connectedDocuments = new HashMap<>();
+		this.connectedDocuments = new ConcurrentHashMap<>();
+		for (int i = 0; i < this.documentLocks.length; i++) {
+			this.documentLocks[i] = new Object();
+		}
+		this.stopIdleJob = new Job(NLS.bind(Messages.stopIdleLanguageServer_job, serverDefinition.label)) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				stopIfIdle();
+				return Status.OK_STATUS;
+			}
+		};
+		this.stopIdleJob.setSystem(true);
+		this.requestScheduler = new RequestScheduler(
+				(int) getPreference(RequestScheduler.MAX_IN_FLIGHT_PREFERENCE, 4));
+		this.responseCache = new ResponseCache((int) getPreference(ResponseCache.MAX_ENTRIES_PREFERENCE, 100));
+	}
+
+	private Object getDocumentLock(@NonNull IPath path) {
+		return this.documentLocks[(path.hashCode() & Integer.MAX_VALUE) % this.documentLocks.length];
 	}
 
 	/**
 	 * Starts a language server and triggers initialization. If language server is started and active, does nothing. If
-	 * language server is inactive, restart it.
+	 * language server is inactive, restart it. The language server process is launched and initialized in background,
+	 * after the previous instance, if any, is shut down.
 	 *
 	 * @throws IOException
 	 */
-	public synchronized void start() throws IOException {
+	public void start() throws IOException {
+		if (isActive()) {
+			// avoid contending on the wrapper for the most common case
+			return;
+		}
+		synchronized (this) {
+			doStart();
+		}
+	}
+
+	private void doStart() {
 		Map<IPath, IDocument> filesToReconnect = Collections.emptyMap();
-		if (this.languageServer != null) {
+		if (this.state == State.STARTING) {
+			return;
+		} else if (this.state == State.INITIALIZED) {
 			if (isActive()) {
 				return;
-			} else {
-				filesToReconnect = new HashMap<>();
-				for (Entry<IPath, DocumentContentSynchronizer> entry : this.connectedDocuments.entrySet()) {
-					filesToReconnect.put(entry.getKey(), entry.getValue().getDocument());
-				}
-				stop();
 			}
+			filesToReconnect = new HashMap<>();
+			for (Entry<IPath, DocumentContentSynchronizer> entry : this.connectedDocuments.entrySet()) {
+				filesToReconnect.put(entry.getKey(), entry.getValue().getDocument());
+			}
+			stop();
 		}
+		LanguageServiceAccessor.languageServerStarted(this);
+		this.state = State.STARTING;
+		final InitializeParams initParams = new InitializeParams();
+		CompletableFuture<Void> launch = this.stopFuture.thenRunAsync(() -> launch(initParams), LIFECYCLE_EXECUTOR);
+		this.launchFuture = launch;
+		CompletableFuture<Void> initialize = launch.thenCompose(theVoid -> this.languageServer.initialize(initParams))
+				.thenAccept(res -> {
+					serverCapabilities = res.getCapabilities();
+					supportWorkspaceFoldersCapability = serverCapabilities != null
+							&& serverCapabilities.getWorkspace() != null
+							&& serverCapabilities.getWorkspace().getWorkspaceFolders() != null
+							&& Boolean.TRUE.equals(serverCapabilities.getWorkspace().getWorkspaceFolders().getSupported());
+					updateTriggerCharacters();
+				}).thenRun(() -> this.languageServer.initialized(new InitializedParams()));
+		this.initializeFuture = initialize;
+		initializeStartTime = System.currentTimeMillis();
+		initialize.whenComplete((theVoid, error) -> {
+			synchronized (this) {
+				if (this.initializeFuture != initialize) {
+					// stopped meanwhile
+					return;
+				}
+				if (error == null) {
+					this.state = State.INITIALIZED;
+				} else {
+					LanguageServerPlugin.logError(error instanceof CompletionException && error.getCause() != null
+							? error.getCause() : error);
+					stop();
+				}
+			}
+		});
+		final Map<IPath, IDocument> toReconnect = filesToReconnect;
+		initialize.thenRun(() -> {
+			if (this.initialProject != null) {
+				watchProject(this.initialProject, true);
+			}
+			for (Entry<IPath, IDocument> fileToReconnect : toReconnect.entrySet()) {
+				try {
+					connect(fileToReconnect.getKey(), fileToReconnect.getValue());
+				} catch (IOException e) {
+					LanguageServerPlugin.logError(e);
+				}
+			}
+		});
+		FileBuffers.getTextFileBufferManager().addFileBufferListener(fileBufferListener);
+	}
+
+	/**
+	 * Launches the language server process and connects to it. Runs in
+	 * background.
+	 */
+	private void launch(InitializeParams initParams) {
 		try {
 			this.lspStreamProvider = serverDefinition.createConnectionProvider();
 			this.lspStreamProvider.start();
 
 			LanguageClientImpl client = serverDefinition.createLanguageClient();
-			ExecutorService executorService = Executors.newCachedThreadPool();
-			final InitializeParams initParams = new InitializeParams();
+			RpcExecutor executorService = RpcExecutor.create(getRpcExecutorName());
+			this.rpcExecutor = executorService;
 			initParams.setProcessId(getCurrentProcessId());
 			if (this.initialProject != null) {
 				URI uri = LSPEclipseUtils.toUri(this.initialProject);
@@ -222,35 +354,16 @@ public class LanguageServerWrapper {
 			initParams.setClientName(name);
 			initParams.setInitializationOptions(
 					this.lspStreamProvider.getInitializationOptions(URI.create(initParams.getRootUri())));
-
-			initializeFuture = languageServer.initialize(initParams).thenAccept(res -> {
-				serverCapabilities = res.getCapabilities();
-				supportWorkspaceFoldersCapability = serverCapabilities != null
-						&& serverCapabilities.getWorkspace() != null
-						&& serverCapabilities.getWorkspace().getWorkspaceFolders() != null
-						&& Boolean.TRUE.equals(serverCapabilities.getWorkspace().getWorkspaceFolders().getSupported());
-			}).thenRun(() -> this.languageServer.initialized(new InitializedParams()));
-			initializeStartTime = System.currentTimeMillis();
-			final Map<IPath, IDocument> toReconnect = filesToReconnect;
-			initializeFuture.thenRun(() -> {
-				if (this.initialProject != null) {
-					watchProject(this.initialProject, true);
-				}
-				for (Entry<IPath, IDocument> fileToReconnect : toReconnect.entrySet()) {
-					try {
-						connect(fileToReconnect.getKey(), fileToReconnect.getValue());
-					} catch (IOException e) {
-						LanguageServerPlugin.logError(e);
-					}
-				}
-			});
-			FileBuffers.getTextFileBufferManager().addFileBufferListener(fileBufferListener);
-		} catch (Exception ex) {
-			LanguageServerPlugin.logError(ex);
-			stop();
+		} catch (IOException ex) {
+			throw new CompletionException(ex);
 		}
 	}
 
+	private @NonNull String getRpcExecutorName() {
+		String res = "LSP4E " + this.serverDefinition.label; //$NON-NLS-1$
+		return this.initialProject != null ? res + " (" + this.initialProject.getName() + ')' : res; //$NON-NLS-1$
+	}
+
 	private Integer getCurrentProcessId() {
 		String segment = ManagementFactory.getRuntimeMXBean().getName().split("@")[0]; //$NON-NLS-1$
 		try {
@@ -275,20 +388,73 @@ public class LanguageServerWrapper {
 	 * @return whether the underlying connection to language server is still active
 	 */
 	public boolean isActive() {
-		return this.launcherFuture != null && !this.launcherFuture.isDone() && !this.launcherFuture.isCancelled();
+		State currentState = this.state;
+		if (currentState == State.STARTING) {
+			return true;
+		}
+		Future<?> launcher = this.launcherFuture;
+		return currentState == State.INITIALIZED && launcher != null && !launcher.isDone()
+				&& !launcher.isCancelled();
 	}
 
+	/**
+	 * Disconnects documents and shuts the language server down in background.
+	 */
 	private synchronized void stop() {
-		if (this.initializeFuture != null) {
-			this.initializeFuture.cancel(true);
-			this.initializeFuture = null;
+		if (this.state == State.STOPPED || this.state == State.STOPPING) {
+			return;
+		}
+		this.state = State.STOPPING;
+		this.idle = false;
+		this.stopIdleJob.cancel();
+		LanguageServiceAccessor.languageServerStopped(this);
+		this.requestScheduler.cancelAll();
+		this.responseCache.clear();
+		CompletableFuture<Void> initialize = this.initializeFuture;
+		// reset before cancelling, so that cancellation isn't seen as a failure
+		this.initializeFuture = null;
+		if (initialize != null) {
+			initialize.cancel(true);
 		}
 		this.serverCapabilities = null;
 		this.capabilitiesAlreadyRequested = false;
+		this.completionTriggerCharacters = NO_CHARACTERS;
+		this.signatureHelpTriggerCharacters = NO_CHARACTERS;
+
+		List<CompletableFuture<Void>> beforeShutdown = new ArrayList<>();
+		for (IPath path : this.connectedDocuments.keySet()) {
+			beforeShutdown.add(disconnectDocument(path));
+		}
+		FileBuffers.getTextFileBufferManager().removeFileBufferListener(fileBufferListener);
+
+		// the process is shut down once launched, launch failures being already reported, and once the
+		// documents are closed. Even sending the shutdown request is done in background, as writing to
+		// the server can block
+		beforeShutdown.add(this.launchFuture.handle((theVoid, error) -> theVoid));
+		this.stopFuture = CompletableFuture.allOf(beforeShutdown.toArray(new CompletableFuture<?>[beforeShutdown.size()]))
+				.thenRunAsync(this::shutdown, LIFECYCLE_EXECUTOR);
+		this.launchFuture = null;
+	}
+
+	private @Nullable CompletableFuture<Object> requestShutdown() {
+		if (this.languageServer == null) {
+			return null;
+		}
+		try {
+			return this.languageServer.shutdown();
+		} catch (Exception ex) {
+			// most likely closed externally
+			return null;
+		}
+	}
 
-		if (this.languageServer != null) {
+	/**
+	 * Shuts the language server process down. Runs in background.
+	 */
+	private void shutdown() {
+		CompletableFuture<Object> shutdown = requestShutdown();
+		if (shutdown != null) {
 			try {
-				CompletableFuture<Object> shutdown = this.languageServer.shutdown();
 				shutdown.get(5000, TimeUnit.MILLISECONDS);
 			} catch (Exception ex) {
 				// most likely closed externally
@@ -296,17 +462,46 @@ public class LanguageServerWrapper {
 		}
 		if (this.launcherFuture != null) {
 			this.launcherFuture.cancel(true);
-			this.launcherFuture = null;
 		}
 		if (this.lspStreamProvider != null) {
 			this.lspStreamProvider.stop();
 		}
-		while (!this.connectedDocuments.isEmpty()) {
-			disconnect(this.connectedDocuments.keySet().iterator().next());
+		if (this.rpcExecutor != null) {
+			this.rpcExecutor.shutdownNow();
 		}
-		this.languageServer = null;
+		synchronized (this) {
+			// a new instance is only launched once this one is shut down
+			this.languageServer = null;
+			this.launcherFuture = null;
+			this.lspStreamProvider = null;
+			this.rpcExecutor = null;
+			if (this.state == State.STOPPING) {
+				this.state = State.STOPPED;
+			}
+		}
+	}
 
-		FileBuffers.getTextFileBufferManager().removeFileBufferListener(fileBufferListener);
+	/**
+	 * @return the scheduler the requests to this language server should be sent
+	 *         through
+	 */
+	public @NonNull RequestScheduler getRequestScheduler() {
+		return this.requestScheduler;
+	}
+
+	/**
+	 * @return the cache of the responses of this language server to requests
+	 *         about documents
+	 */
+	public @NonNull ResponseCache getResponseCache() {
+		return this.responseCache;
+	}
+
+	/**
+	 * @return the language server if it is launched, without starting it
+	 */
+	@Nullable LanguageServer getLaunchedServer() {
+		return this.languageServer;
 	}
 
 	public void connect(@NonNull IFile file, IDocument document) throws IOException {
@@ -377,8 +572,13 @@ public class LanguageServerWrapper {
 		if (this.connectedDocuments.containsKey(thePath)) {
 			return;
 		}
+		if (this.idle) {
+			this.idle = false;
+			this.stopIdleJob.cancel();
+		}
 		start();
-		if (this.initializeFuture == null) {
+		CompletableFuture<Void> initialize = this.initializeFuture;
+		if (initialize == null) {
 			return;
 		}
 		if (document == null) {
@@ -389,34 +589,122 @@ public class LanguageServerWrapper {
 			return;
 		}
 		final IDocument theDocument = document;
-		initializeFuture.thenRun(() -> {
-			if (this.connectedDocuments.containsKey(thePath)) {
-				return;
-			}
-			Either<TextDocumentSyncKind, TextDocumentSyncOptions> syncOptions = initializeFuture == null ? null
-					: this.serverCapabilities.getTextDocumentSync();
-			TextDocumentSyncKind syncKind = null;
-			if (syncOptions != null) {
-				if (syncOptions.isRight()) {
-					syncKind = syncOptions.getRight().getChange();
-				} else if (syncOptions.isLeft()) {
-					syncKind = syncOptions.getLeft();
+		CompletableFuture<Void> closing = this.closingDocuments.get(thePath);
+		// opened again only once the previous close is sent
+		CompletableFuture<Void> ready = closing == null ? initialize : CompletableFuture.allOf(initialize, closing);
+		ready.thenRun(() -> {
+			synchronized (getDocumentLock(thePath)) {
+				ServerCapabilities capabilities = this.serverCapabilities;
+				if (this.connectedDocuments.containsKey(thePath) || capabilities == null) {
+					// already connected, or stopped meanwhile
+					return;
 				}
+				Either<TextDocumentSyncKind, TextDocumentSyncOptions> syncOptions = capabilities.getTextDocumentSync();
+				TextDocumentSyncKind syncKind = null;
+				if (syncOptions != null) {
+					if (syncOptions.isRight()) {
+						syncKind = syncOptions.getRight().getChange();
+					} else if (syncOptions.isLeft()) {
+						syncKind = syncOptions.getLeft();
+					}
+				}
+				DocumentContentSynchronizer listener = new DocumentContentSynchronizer(this, theDocument, thePath, syncKind);
+				theDocument.addDocumentListener(listener);
+				LanguageServerWrapper.this.connectedDocuments.put(thePath, listener);
 			}
-			DocumentContentSynchronizer listener = new DocumentContentSynchronizer(this, theDocument, thePath, syncKind);
-			theDocument.addDocumentListener(listener);
-			LanguageServerWrapper.this.connectedDocuments.put(thePath, listener);
 		});
 	}
 
 	public void disconnect(IPath path) {
-		DocumentContentSynchronizer documentListener = this.connectedDocuments.remove(path);
-		if (documentListener != null) {
-			documentListener.getDocument().removeDocumentListener(documentListener);
-			documentListener.documentClosed();
-		}
+		disconnectDocument(path);
 		if (this.connectedDocuments.isEmpty()) {
+			synchronized (this) {
+				// a document may have been connected meanwhile
+				if (this.connectedDocuments.isEmpty()) {
+					if (getIdleTimeout() > 0 && isActive()) {
+						setIdle(getIdleTimeout());
+					} else {
+						stop();
+					}
+				}
+			}
+		}
+	}
+
+	private long getIdleTimeout() {
+		return Math.max(0, getPreference(IDLE_TIMEOUT_PREFERENCE, 0));
+	}
+
+	/**
+	 * @return the value of the preference for the server definition, falling
+	 *         back to the value for all the servers
+	 */
+	private long getPreference(@NonNull String key, long defaultValue) {
+		IPreferencesService preferences = Platform.getPreferencesService();
+		long defaultServerValue = preferences.getLong(LanguageServerPlugin.PLUGIN_ID, key, defaultValue, null);
+		return preferences.getLong(LanguageServerPlugin.PLUGIN_ID, key + '.' + this.serverDefinition.id,
+				defaultServerValue, null);
+	}
+
+	/**
+	 * Marks the language server, if no document is connected, as only kept
+	 * running until it is used, the given timeout elapses or memory runs low.
+	 *
+	 * @param timeout
+	 *            delay in milliseconds before stopping the server, 0 to stop
+	 *            it right away
+	 */
+	synchronized void setIdle(long timeout) {
+		if (!this.connectedDocuments.isEmpty() || !isActive()) {
+			return;
+		}
+		if (timeout <= 0) {
 			stop();
+			return;
+		}
+		this.idle = true;
+		this.stopIdleJob.schedule(timeout);
+	}
+
+	/**
+	 * Stops the language server if it is only kept running because of the idle
+	 * timeout.
+	 */
+	synchronized void stopIfIdle() {
+		if (this.idle && this.connectedDocuments.isEmpty()) {
+			stop();
+		}
+	}
+
+	/**
+	 * Disconnects the document, sending the changes still pending and the
+	 * didClose notification in background as writing to the server can block.
+	 *
+	 * @return a future completing once the document is closed
+	 */
+	private @NonNull CompletableFuture<Void> disconnectDocument(@NonNull IPath path) {
+		synchronized (getDocumentLock(path)) {
+			DocumentContentSynchronizer documentListener = this.connectedDocuments.remove(path);
+			if (documentListener == null) {
+				return CompletableFuture.completedFuture(null);
+			}
+			// no change is recorded anymore, the pending ones are already taken from the document
+			documentListener.getDocument().removeDocumentListener(documentListener);
+			// nobody waits for the answers anymore
+			URI uri = LSPEclipseUtils.toUri(path);
+			this.requestScheduler.cancelRequests(uri);
+			this.responseCache.invalidate(uri);
+			CompletableFuture<Void> closed = CompletableFuture.runAsync(() -> {
+				try {
+					documentListener.documentClosed();
+				} catch (RuntimeException e) {
+					// most likely closed externally
+					LanguageServerPlugin.logError(e);
+				}
+			}, LIFECYCLE_EXECUTOR);
+			this.closingDocuments.put(path, closed);
+			closed.thenRun(() -> this.closingDocuments.remove(path, closed));
+			return closed;
 		}
 	}
 
@@ -429,6 +717,32 @@ public class LanguageServerWrapper {
 		return connectedDocuments.containsKey(location);
 	}
 
+	/**
+	 * Returns a future completing once all the changes made so far to the given
+	 * document have been sent to the language server. The value is the version of
+	 * the document the language server is synchronized with, or <code>null</code>
+	 * if the document isn't connected to this language server.
+	 */
+	public @NonNull CompletableFuture<@Nullable Integer> getSyncedDocumentVersion(@NonNull IDocument document) {
+		CompletableFuture<Void> initialize = this.initializeFuture;
+		if (initialize == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return initialize.thenApply(theVoid -> {
+			DocumentContentSynchronizer synchronizer = getDocumentSynchronizer(document);
+			return synchronizer != null ? Integer.valueOf(synchronizer.flushPendingChanges()) : null;
+		});
+	}
+
+	private @Nullable DocumentContentSynchronizer getDocumentSynchronizer(@NonNull IDocument document) {
+		for (DocumentContentSynchronizer synchronizer : this.connectedDocuments.values()) {
+			if (synchronizer.getDocument() == document) {
+				return synchronizer;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Starts and returns the language server, regardless of if it is initialized.
 	 * If not in the UI Thread, will wait to return the initialized server.
@@ -453,17 +767,31 @@ public class LanguageServerWrapper {
 	 */
 	@NonNull
 	public CompletableFuture<LanguageServer> getInitializedServer() {
+		return getInitializedServer(true);
+	}
+
+	/**
+	 * Starts the language server and returns a CompletableFuture waiting for the
+	 * server to be initialized.
+	 *
+	 * @param showProgress
+	 *            whether to show the initialization to the user when called from
+	 *            the UI thread, which is not wanted when the caller doesn't wait
+	 */
+	@NonNull
+	CompletableFuture<LanguageServer> getInitializedServer(boolean showProgress) {
 		try {
 			start();
 		} catch (IOException ex) {
 			LanguageServerPlugin.logError(ex);
 		}
-		if (initializeFuture != null && !this.initializeFuture.isDone()) {
-			if (Display.getCurrent() != null) { // UI Thread
+		CompletableFuture<Void> initialize = this.initializeFuture;
+		if (initialize != null && !initialize.isDone()) {
+			if (showProgress && Display.getCurrent() != null) { // UI Thread
 				Job waitForInitialization = new Job(Messages.initializeLanguageServer_job) {
 					@Override
 					protected IStatus run(IProgressMonitor monitor) {
-						initializeFuture.join();
+						initialize.join();
 						return Status.OK_STATUS;
 					}
 				};
@@ -472,7 +800,7 @@ public class LanguageServerWrapper {
 				PlatformUI.getWorkbench().getProgressService().showInDialog(
 						PlatformUI.getWorkbench().getActiveWorkbenchWindow().getShell(), waitForInitialization);
 			}
-			return initializeFuture.thenApply(r -> this.languageServer);
+			return initialize.thenApply(r -> this.languageServer);
 		}
 		return CompletableFuture.completedFuture(this.languageServer);
 	}
@@ -517,6 +845,10 @@ public class LanguageServerWrapper {
 		params.getRegistrations().forEach(reg -> {
 			if ("workspace/didChangeWorkspaceFolders".equals(reg.getMethod())) { //$NON-NLS-1$
 				supportWorkspaceFoldersCapability = true;
+			} else if (COMPLETION_METHOD.equals(reg.getMethod())) {
+				completionTriggerCharacters = toTriggerCharacters(getTriggerCharacters(reg.getRegisterOptions()));
+			} else if (SIGNATURE_HELP_METHOD.equals(reg.getMethod())) {
+				signatureHelpTriggerCharacters = toTriggerCharacters(getTriggerCharacters(reg.getRegisterOptions()));
 			}
 		});
 	}
@@ -525,8 +857,77 @@ public class LanguageServerWrapper {
 		params.getUnregisterations().forEach(reg -> {
 			if ("workspace/didChangeWorkspaceFolders".equals(reg.getMethod())) { //$NON-NLS-1$
 				supportWorkspaceFoldersCapability = false;
+			} else if (COMPLETION_METHOD.equals(reg.getMethod()) || SIGNATURE_HELP_METHOD.equals(reg.getMethod())) {
+				updateTriggerCharacters();
 			}
 		});
 	}
 
+	/**
+	 * @return the characters which typing should trigger completion, as a
+	 *         shared array which must not be modified. Doesn't wait for the
+	 *         server to be initialized: no characters are returned until then.
+	 */
+	public char[] getCompletionTriggerCharacters() {
+		return this.completionTriggerCharacters;
+	}
+
+	/**
+	 * @return the characters which typing should trigger signature help, as a
+	 *         shared array which must not be modified. Doesn't wait for the
+	 *         server to be initialized: no characters are returned until then.
+	 */
+	public char[] getSignatureHelpTriggerCharacters() {
+		return this.signatureHelpTriggerCharacters;
+	}
+
+	private void updateTriggerCharacters() {
+		ServerCapabilities capabilities = this.serverCapabilities;
+		List<String> completionTriggers = null;
+		List<String> signatureHelpTriggers = null;
+		if (capabilities != null && capabilities.getCompletionProvider() != null) {
+			completionTriggers = capabilities.getCompletionProvider().getTriggerCharacters();
+		}
+		if (capabilities != null && capabilities.getSignatureHelpProvider() != null) {
+			signatureHelpTriggers = capabilities.getSignatureHelpProvider().getTriggerCharacters();
+		}
+		this.completionTriggerCharacters = toTriggerCharacters(completionTriggers);
+		this.signatureHelpTriggerCharacters = toTriggerCharacters(signatureHelpTriggers);
+	}
+
+	private static @Nullable List<String> getTriggerCharacters(Object registerOptions) {
+		if (!(registerOptions instanceof JsonObject)) {
+			return null;
+		}
+		JsonElement triggerCharacters = ((JsonObject) registerOptions).get("triggerCharacters"); //$NON-NLS-1$
+		if (triggerCharacters == null || !triggerCharacters.isJsonArray()) {
+			return null;
+		}
+		List<String> res = new ArrayList<>();
+		for (JsonElement triggerCharacter : triggerCharacters.getAsJsonArray()) {
+			if (triggerCharacter.isJsonPrimitive()) {
+				res.add(triggerCharacter.getAsString());
+			}
+		}
+		return res;
+	}
+
+	private static char[] toTriggerCharacters(@Nullable List<String> triggerCharacters) {
+		if (triggerCharacters == null || triggerCharacters.isEmpty()) {
+			return NO_CHARACTERS;
+		}
+		BitSet chars = new BitSet();
+		for (String triggerCharacter : triggerCharacters) {
+			if (triggerCharacter != null && triggerCharacter.length() == 1) {
+				chars.set(triggerCharacter.charAt(0));
+			}
+		}
+		char[] res = new char[chars.cardinality()];
+		int i = 0;
+		for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
+			res[i++] = (char) c;
+		}
+		return res;
+	}
+
 }
\ No newline at end of file
@@ -12,25 +12,27 @@
 package org.eclipse.lsp4e;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IRegistryEventListener;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.content.IContentType;
-import org.eclipse.core.runtime.content.IContentTypeManager;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -161,23 +163,113 @@ public class LanguageServersRegistry {
 		}
 	}
 
+	/**
+	 * Immutable index of the content-type mappings, replaced as a whole when
+	 * mappings change so that lookups never see a partial update.
+	 */
+	private static final class ConnectionsIndex {
+
+		final @NonNull List<ContentTypeToLanguageServerDefinition> connections;
+		/** mappings of each content type, most specialized first */
+		private final @NonNull Map<IContentType, List<ContentTypeToLanguageServerDefinition>> directMappings = new HashMap<>();
+		/** mappings of each content type followed by the ones of its base types */
+		private final @NonNull Map<IContentType, List<ContentTypeToLanguageServerDefinition>> inheritedMappings = new HashMap<>();
+
+		ConnectionsIndex(@NonNull List<ContentTypeToLanguageServerDefinition> connections) {
+			this.connections = Collections.unmodifiableList(connections);
+			Map<IContentType, List<ContentTypeToLanguageServerDefinition>> byContentType = new HashMap<>();
+			for (ContentTypeToLanguageServerDefinition mapping : connections) {
+				byContentType.computeIfAbsent(mapping.getKey(), contentType -> new ArrayList<>()).add(mapping);
+			}
+			for (Entry<IContentType, List<ContentTypeToLanguageServerDefinition>> entry : byContentType.entrySet()) {
+				this.directMappings.put(entry.getKey(), Collections.unmodifiableList(entry.getValue().stream()
+					.sorted((mapping1, mapping2) -> {
+						// this sort should make that the content-type hierarchy is respected
+						// and the most specialized content-type are placed before the more generic ones
+						if (mapping1.getKey().isKindOf(mapping2.getKey())) {
+							return -1;
+						} else if (mapping2.getKey().isKindOf(mapping1.getKey())) {
+							return +1;
+						}
+						// TODO support "priority" attribute, but it's not made public
+						return mapping1.getKey().getId().compareTo(mapping2.getKey().getId());
+					})
+					.collect(Collectors.toList())));
+			}
+			for (IContentType contentType : Platform.getContentTypeManager().getAllContentTypes()) {
+				this.inheritedMappings.put(contentType, computeInheritedMappings(contentType));
+			}
+		}
+
+		@NonNull List<ContentTypeToLanguageServerDefinition> getDirectMappings(@NonNull IContentType contentType) {
+			List<ContentTypeToLanguageServerDefinition> res = this.directMappings.get(contentType);
+			return res != null ? res : Collections.emptyList();
+		}
+
+		@NonNull List<ContentTypeToLanguageServerDefinition> getInheritedMappings(@NonNull IContentType contentType) {
+			List<ContentTypeToLanguageServerDefinition> res = this.inheritedMappings.get(contentType);
+			// content type may have been added after the index was built
+			return res != null ? res : computeInheritedMappings(contentType);
+		}
+
+		private @NonNull List<ContentTypeToLanguageServerDefinition> computeInheritedMappings(@NonNull IContentType contentType) {
+			List<ContentTypeToLanguageServerDefinition> res = null;
+			for (IContentType type = contentType; type != null; type = type.getBaseType()) {
+				List<ContentTypeToLanguageServerDefinition> mappings = this.directMappings.get(type);
+				if (mappings != null) {
+					if (res == null) {
+						res = new ArrayList<>();
+					}
+					res.addAll(mappings);
+				}
+			}
+			return res != null ? Collections.unmodifiableList(res) : Collections.emptyList();
+		}
+	}
+
 	private static LanguageServersRegistry INSTANCE = null;
-	public static LanguageServersRegistry getInstance() {
+	public static synchronized LanguageServersRegistry getInstance() {
 		if (INSTANCE == null) {
 			INSTANCE = new LanguageServersRegistry();
 		}
 		return INSTANCE;
 	}
 
-	private List<ContentTypeToLanguageServerDefinition> connections = new ArrayList<>();
+	private volatile @NonNull ConnectionsIndex index = new ConnectionsIndex(Collections.emptyList());
 	private IPreferenceStore preferenceStore;
 
 	private LanguageServersRegistry() {
 		this.preferenceStore = LanguageServerPlugin.getDefault().getPreferenceStore();
 		initialize();
+		Platform.getExtensionRegistry().addListener(new IRegistryEventListener() {
+			@Override
+			public void added(IExtension[] extensions) {
+				reloadExtensions();
+			}
+
+			@Override
+			public void removed(IExtension[] extensions) {
+				reloadExtensions();
+			}
+
+			@Override
+			public void added(IExtensionPoint[] extensionPoints) {
+				// nothing to do
+			}
+
+			@Override
+			public void removed(IExtensionPoint[] extensionPoints) {
+				// nothing to do
+			}
+		}, EXTENSION_POINT_ID);
+		// index also covers content types, which can change
+		Platform.getContentTypeManager().addContentTypeChangeListener(event -> updateConnections(connections -> {
+			// only rebuild the index
+		}));
 	}
 
 	private void initialize() {
+		List<ContentTypeToLanguageServerDefinition> connections = new ArrayList<>();
 		String prefs = preferenceStore.getString(CONTENT_TYPE_TO_LSP_LAUNCH_PREF_KEY);
 		if (prefs != null && !prefs.isEmpty()) {
 			String[] entries = prefs.split(","); //$NON-NLS-1$
@@ -188,14 +280,29 @@ public class LanguageServersRegistry {
 				}
 			}
 		}
+		connections.addAll(readExtensions(Collections.emptyMap()));
+		this.index = new ConnectionsIndex(connections);
+	}
 
+	/**
+	 * Reads the content-type mappings contributed by extensions.
+	 *
+	 * @param existingServers
+	 *            definitions to reuse, by id, if their extension is still valid
+	 */
+	private List<ContentTypeToLanguageServerDefinition> readExtensions(
+			Map<String, ExtensionLanguageServerDefinition> existingServers) {
+		List<ContentTypeToLanguageServerDefinition> connections = new ArrayList<>();
 		Map<String, LanguageServerDefinition> servers = new HashMap<>();
 		List<ContentTypeMapping> contentTypes = new ArrayList<>();
 		for (IConfigurationElement extension : Platform.getExtensionRegistry().getConfigurationElementsFor(EXTENSION_POINT_ID)) {
 			String id = extension.getAttribute(ID_ATTRIBUTE);
 			if (id != null && !id.isEmpty()) {
 				if (extension.getName().equals(LS_ELEMENT)) {
-					servers.put(id, new ExtensionLanguageServerDefinition(extension));
+					ExtensionLanguageServerDefinition existing = existingServers.get(id);
+					// keep the same definition, which identifies started language servers
+					servers.put(id, existing != null && existing.extension.isValid() ? existing
+							: new ExtensionLanguageServerDefinition(extension));
 				} else if (extension.getName().equals(MAPPING_ELEMENT)) {
 					IContentType contentType = Platform.getContentTypeManager().getContentType(extension.getAttribute(CONTENT_TYPE_ATTRIBUTE));
 					String languageId = extension.getAttribute(LANGUAGE_ID_ATTRIBUTE);
@@ -210,11 +317,38 @@ public class LanguageServersRegistry {
 		for (ContentTypeMapping mapping : contentTypes) {
 			LanguageServerDefinition lsDefinition = servers.get(mapping.id);
 			if (lsDefinition != null) {
-				registerAssociation(mapping.contentType, lsDefinition, mapping.languageId);
+				if (mapping.languageId != null) {
+					lsDefinition.registerAssociation(mapping.contentType, mapping.languageId);
+				}
+				connections.add(new ContentTypeToLanguageServerDefinition(mapping.contentType, lsDefinition));
 			} else {
 				LanguageServerPlugin.logWarning("server '" + mapping.id + "' not available", null); //$NON-NLS-1$ //$NON-NLS-2$
 			}
 		}
+		return connections;
+	}
+
+	private void reloadExtensions() {
+		updateConnections(connections -> {
+			Map<String, ExtensionLanguageServerDefinition> existingServers = new HashMap<>();
+			for (ContentTypeToLanguageServerDefinition mapping : connections) {
+				if (mapping.getValue() instanceof ExtensionLanguageServerDefinition) {
+					existingServers.put(mapping.getValue().id, (ExtensionLanguageServerDefinition) mapping.getValue());
+				}
+			}
+			connections.removeIf(mapping -> mapping.getValue() instanceof ExtensionLanguageServerDefinition);
+			connections.addAll(readExtensions(existingServers));
+		});
+	}
+
+	/**
+	 * Applies the change to a copy of the mappings and replaces the index with
+	 * one of the changed mappings.
+	 */
+	private synchronized void updateConnections(Consumer<List<ContentTypeToLanguageServerDefinition>> change) {
+		List<ContentTypeToLanguageServerDefinition> connections = new ArrayList<>(this.index.connections);
+		change.accept(connections);
+		this.index = new ConnectionsIndex(connections);
 	}
 
 	private void persistContentTypeToLaunchConfigurationMapping() {
@@ -242,25 +376,22 @@ public class LanguageServersRegistry {
 	 * This does <strong>not</strong> include the one that match transitively as per content-type hierarchy
 	 */
 	List<ContentTypeToLanguageServerDefinition> findProviderFor(final @NonNull IContentType contentType) {
-		return connections.stream()
-			.filter(entry -> entry.getKey().equals(contentType))
-			.sorted((mapping1, mapping2) -> {
-				// this sort should make that the content-type hierarchy is respected
-				// and the most specialized content-type are placed before the more generic ones
-				if (mapping1.getKey().isKindOf(mapping2.getKey())) {
-					return -1;
-				} else if (mapping2.getKey().isKindOf(mapping1.getKey())) {
-					return +1;
-				}
-				// TODO support "priority" attribute, but it's not made public
-				return mapping1.getKey().getId().compareTo(mapping2.getKey().getId());
-			})
-			.collect(Collectors.toList());
+		return this.index.getDirectMappings(contentType);
+	}
+
+	/**
+	 * @param contentType
+	 * @return the {@link LanguageServerDefinition}s associated to the given
+	 *         content-type or to one of its base types, the ones of the most
+	 *         specialized content-type first
+	 */
+	@NonNull List<ContentTypeToLanguageServerDefinition> findProvidersIncludingBaseTypes(final @NonNull IContentType contentType) {
+		return this.index.getInheritedMappings(contentType);
 	}
 
 	public void registerAssociation(@NonNull IContentType contentType, @NonNull ILaunchConfiguration launchConfig, @NonNull Set<String> launchMode) {
 		ContentTypeToLSPLaunchConfigEntry mapping = new ContentTypeToLSPLaunchConfigEntry(contentType, launchConfig, launchMode);
-		connections.add(mapping);
+		updateConnections(connections -> connections.add(mapping));
 		persistContentTypeToLaunchConfigurationMapping();
 	}
 
@@ -269,25 +400,27 @@ public class LanguageServersRegistry {
 			serverDefinition.registerAssociation(contentType, languageId);
 		}
 
-		connections.add(new ContentTypeToLanguageServerDefinition(contentType, serverDefinition));
+		updateConnections(connections -> connections.add(new ContentTypeToLanguageServerDefinition(contentType, serverDefinition)));
 	}
 
 	public void setAssociations(List<ContentTypeToLSPLaunchConfigEntry> wc) {
-		this.connections.removeIf(ContentTypeToLSPLaunchConfigEntry.class::isInstance);
-		this.connections.addAll(wc);
+		updateConnections(connections -> {
+			connections.removeIf(ContentTypeToLSPLaunchConfigEntry.class::isInstance);
+			connections.addAll(wc);
+		});
 		persistContentTypeToLaunchConfigurationMapping();
 	}
 
 	public List<ContentTypeToLSPLaunchConfigEntry> getContentTypeToLSPLaunches() {
-		return this.connections.stream().filter(ContentTypeToLSPLaunchConfigEntry.class::isInstance).map(ContentTypeToLSPLaunchConfigEntry.class::cast).collect(Collectors.toList());
+		return this.index.connections.stream().filter(ContentTypeToLSPLaunchConfigEntry.class::isInstance).map(ContentTypeToLSPLaunchConfigEntry.class::cast).collect(Collectors.toList());
 	}
 
 	public List<ContentTypeToLanguageServerDefinition> getContentTypeToLSPExtensions() {
-		return this.connections.stream().filter(mapping -> mapping.getValue() instanceof ExtensionLanguageServerDefinition).collect(Collectors.toList());
+		return this.index.connections.stream().filter(mapping -> mapping.getValue() instanceof ExtensionLanguageServerDefinition).collect(Collectors.toList());
 	}
 
 	public @Nullable LanguageServerDefinition getDefinition(@NonNull String languageServerId) {
-		for (ContentTypeToLanguageServerDefinition mapping : this.connections) {
+		for (ContentTypeToLanguageServerDefinition mapping : this.index.connections) {
 			if (mapping.getValue().id.equals(languageServerId)) {
 				return mapping.getValue();
 			}
@@ -327,11 +460,10 @@ public class LanguageServersRegistry {
 	 * @throws IOException
 	 */
 	public boolean matches(@NonNull IFile file, @NonNull LanguageServerDefinition serverDefinition) throws IOException, CoreException {
-		IContentTypeManager manager = Platform.getContentTypeManager();
-		try (InputStream contents = file.getContents()) {
-			Collection<IContentType> fileContentTypes = Arrays.asList(manager.findContentTypeFor(contents, file.getName()));
-			for (ContentTypeToLanguageServerDefinition mapping : this.connections) {
-				if (mapping.getValue().equals(serverDefinition) && fileContentTypes.contains(mapping.getKey())) {
+		ConnectionsIndex currentIndex = this.index;
+		for (IContentType contentType : FileContentTypes.getContentTypes(file)) {
+			for (ContentTypeToLanguageServerDefinition mapping : currentIndex.getInheritedMappings(contentType)) {
+				if (mapping.getValue().equals(serverDefinition)) {
 					return true;
 				}
 			}
@@ -12,21 +12,26 @@
 package org.eclipse.lsp4e;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -38,7 +43,9 @@ import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.lsp4e.LanguageServersRegistry.LanguageServerDefinition;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4e.server.StreamConnectionProvider;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
@@ -56,8 +63,28 @@ public class LanguageServiceAccessor {
 		// this class shouldn't be instantiated
 	}
 
-	private static Set<LanguageServerWrapper> startedServers = new HashSet<>();
+	/** started servers, iterated without locking as a snapshot */
+	private static final Set<LanguageServerWrapper> startedServers = new CopyOnWriteArraySet<>();
+	/** started servers by the project they were started for and their definition */
+	private static final Map<Entry<IProject, LanguageServerDefinition>, LanguageServerWrapper> startedServersByProject = new ConcurrentHashMap<>();
 	private static Map<StreamConnectionProvider, LanguageServerDefinition> providersToLSDefinitions = new HashMap<>();
+	/**
+	 * Language servers connected to documents, resolved once per document. Values
+	 * must not reference the document, which is the weak key.
+	 */
+	private static final Map<IDocument, CompletableFuture<List<LanguageServerWrapper>>> documentServers = new WeakHashMap<>();
+
+	static {
+		Platform.getContentTypeManager().addContentTypeChangeListener(event -> {
+			IContentType contentType = event.getContentType();
+			List<LanguageServerDefinition> definitions = LanguageServersRegistry.getInstance()
+					.findProvidersIncludingBaseTypes(contentType).stream().map(Entry::getValue)
+					.collect(Collectors.toList());
+			// documents which are, or were, handled by servers for the content type
+			invalidateDocumentServers((file, wrappers) -> contentType.isAssociatedWith(file.getName())
+					|| wrappers.stream().anyMatch(wrapper -> definitions.contains(wrapper.serverDefinition)));
+		});
+	}
 
 	/**
 	 * A bean storing association of a Document/File with a language server.
@@ -99,14 +126,118 @@ public class LanguageServiceAccessor {
 			return this.server;
 		}
 
+		/**
+		 * Returns the initialized language server, once it is synchronized with
+		 * all the changes made so far to the document, so that requests using
+		 * positions in the document can be chained on it safely.
+		 *
+		 * @see LanguageServerWrapper#getSyncedDocumentVersion(IDocument)
+		 */
 		public CompletableFuture<LanguageServer> getInitializedLanguageClient() {
-			return this.wrapper.getInitializedServer();
+			return getSyncedLanguageServer(true);
+		}
+
+		private CompletableFuture<LanguageServer> getSyncedLanguageServer(boolean showProgress) {
+			return this.wrapper.getInitializedServer(showProgress).thenCompose(languageServer -> this.wrapper
+					.getSyncedDocumentVersion(this.document).thenApply(version -> languageServer));
+		}
+
+		/**
+		 * Sends a request once the language server is initialized and
+		 * synchronized with the document, through the scheduler of the language
+		 * server.
+		 *
+		 * @param priority
+		 *            priority of the request
+		 * @param method
+		 *            if not <code>null</code>, a previous request with the same
+		 *            method for the same document is superseded by this one
+		 * @param request
+		 *            sends the request to the language server
+		 * @return the result of the request. Cancelling it, for example when
+		 *         giving up waiting for it, cancels the request sent.
+		 * @see RequestScheduler
+		 */
+		public <T> @NonNull CompletableFuture<T> sendRequest(@NonNull Priority priority, @Nullable String method,
+				@NonNull Function<LanguageServer, CompletableFuture<T>> request) {
+			Object key = method != null ? new SimpleImmutableEntry<>(method, this.fileUri) : null;
+			return this.wrapper.getRequestScheduler().schedule(priority, this.fileUri, key,
+					() -> RequestScheduler.thenSend(getSyncedLanguageServer(false), request));
+		}
+
+		/**
+		 * Sends a request like {@link #sendRequest(Priority, String, Function)},
+		 * unless an identical request, with the same method and parameters for
+		 * the same version of the document, is already queued or in flight to the
+		 * language server, in which case its result is shared.
+		 *
+		 * @param params
+		 *            parameters of the request, compared with
+		 *            {@link Object#equals(Object)}
+		 * @see RequestScheduler#schedule(Priority, URI, Object, Object,
+		 *      java.util.function.Supplier)
+		 */
+		public <T> @NonNull CompletableFuture<T> sendRequest(@NonNull Priority priority, @NonNull String method,
+				@NonNull Object params, @NonNull Function<LanguageServer, CompletableFuture<T>> request) {
+			long modificationStamp = getModificationStamp();
+			if (modificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+				return sendRequest(priority, method, request);
+			}
+			return shareRequest(priority, method, modificationStamp, params, request);
+		}
+
+		/**
+		 * Sends a request like
+		 * {@link #sendRequest(Priority, String, Object, Function)}, for requests
+		 * which response only depends on the content of the document. The
+		 * response is cached until the document changes, and must not be
+		 * modified.
+		 *
+		 * @see ResponseCache
+		 */
+		public <T> @NonNull CompletableFuture<T> sendCachedRequest(@NonNull Priority priority, @NonNull String method,
+				@NonNull Object params, @NonNull Function<LanguageServer, CompletableFuture<T>> request) {
+			long modificationStamp = getModificationStamp();
+			if (modificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP) {
+				return sendRequest(priority, method, request);
+			}
+			return this.wrapper.getResponseCache().get(method, this.fileUri, modificationStamp, params,
+					() -> shareRequest(priority, method, modificationStamp, params, request));
+		}
+
+		private long getModificationStamp() {
+			return this.document instanceof IDocumentExtension4
+					? ((IDocumentExtension4) this.document).getModificationStamp()
+					: IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		}
+
+		private <T> @NonNull CompletableFuture<T> shareRequest(@NonNull Priority priority, @NonNull String method,
+				long modificationStamp, @NonNull Object params,
+				@NonNull Function<LanguageServer, CompletableFuture<T>> request) {
+			Object identity = Arrays.asList(method, this.fileUri, Long.valueOf(modificationStamp), params);
+			return this.wrapper.getRequestScheduler().schedule(priority, this.fileUri,
+					new SimpleImmutableEntry<>(method, this.fileUri), identity,
+					() -> RequestScheduler.thenSend(getSyncedLanguageServer(false), request));
 		}
 
 		public @Nullable ServerCapabilities getCapabilites() {
 			return this.wrapper.getServerCapabilities();
 		}
 
+		/**
+		 * @see LanguageServerWrapper#getCompletionTriggerCharacters()
+		 */
+		public char[] getCompletionTriggerCharacters() {
+			return this.wrapper.getCompletionTriggerCharacters();
+		}
+
+		/**
+		 * @see LanguageServerWrapper#getSignatureHelpTriggerCharacters()
+		 */
+		public char[] getSignatureHelpTriggerCharacters() {
+			return this.wrapper.getSignatureHelpTriggerCharacters();
+		}
+
 		public boolean isActive() {
 			return this.wrapper.isActive();
 		}
@@ -211,7 +342,7 @@ public class LanguageServiceAccessor {
 	 */
 	@NonNull
 	public static Collection<LanguageServerWrapper> getLSWrappers(@NonNull IFile file,
-			@NonNull Predicate<ServerCapabilities> request) throws IOException {
+			@Nullable Predicate<ServerCapabilities> request) throws IOException {
 		LinkedHashSet<LanguageServerWrapper> res = new LinkedHashSet<>();
 		IProject project = file.getProject();
 		if (project == null) {
@@ -221,22 +352,16 @@ public class LanguageServiceAccessor {
 		res.addAll(getMatchingStartedWrappers(file, request));
 
 		// look for running language servers via content-type
-		Queue<IContentType> contentTypes = new LinkedList<>();
-		Set<IContentType> addedContentTypes = new HashSet<>();
-		try (InputStream contents = file.getContents()) {
-			contentTypes.addAll(Arrays.asList(Platform.getContentTypeManager().findContentTypesFor(contents, file.getName()))); //TODO consider using document as inputstream
-			addedContentTypes.addAll(contentTypes);
+		List<IContentType> contentTypes;
+		try {
+			contentTypes = FileContentTypes.getContentTypes(file);
 		} catch (CoreException e) {
 			LanguageServerPlugin.logError(e);
 			return res;
 		}
 
-		while (!contentTypes.isEmpty()) {
-			IContentType contentType = contentTypes.poll();
-			if (contentType == null) {
-				continue;
-			}
-			for (ContentTypeToLanguageServerDefinition mapping : LanguageServersRegistry.getInstance().findProviderFor(contentType)) {
+		for (IContentType contentType : contentTypes) {
+			for (ContentTypeToLanguageServerDefinition mapping : LanguageServersRegistry.getInstance().findProvidersIncludingBaseTypes(contentType)) {
 				if (mapping != null && mapping.getValue() != null) {
 					ProjectSpecificLanguageServerWrapper wrapper = getLSWrapperForConnection(project, mapping.getValue());
 					if (request == null
@@ -246,10 +371,6 @@ public class LanguageServiceAccessor {
 					}
 				}
 			}
-			if (contentType.getBaseType() != null && !addedContentTypes.contains(contentType.getBaseType())) {
-				addedContentTypes.add(contentType.getBaseType());
-				contentTypes.add(contentType.getBaseType());
-			}
 		}
 		return res;
 	}
@@ -268,50 +389,50 @@ public class LanguageServiceAccessor {
 	@Deprecated
 	public static ProjectSpecificLanguageServerWrapper getLSWrapperForConnection(@NonNull IProject project,
 			@NonNull LanguageServerDefinition serverDefinition) throws IOException {
-		LanguageServerWrapper wrapper = null;
-
-		synchronized(startedServers) {
-			for (LanguageServerWrapper startedWrapper : getStartedLSWrappers(project)) {
-				if (startedWrapper.serverDefinition.equals(serverDefinition)) {
-					wrapper = startedWrapper;
-					break;
-				}
-			}
-			if (wrapper == null) {
-				wrapper = new ProjectSpecificLanguageServerWrapper(project, serverDefinition);
-				wrapper.start();
-			}
-
-			if (wrapper != null) {
-				startedServers.add(wrapper);
+		Entry<IProject, LanguageServerDefinition> key = new SimpleImmutableEntry<>(project, serverDefinition);
+		LanguageServerWrapper wrapper = startedServersByProject.get(key);
+		if (wrapper != null) {
+			return (ProjectSpecificLanguageServerWrapper) wrapper;
+		}
+		// a server started for another project may also operate on this one
+		for (LanguageServerWrapper startedWrapper : startedServers) {
+			if (startedWrapper.serverDefinition.equals(serverDefinition) && startedWrapper.canOperate(project)) {
+				return (ProjectSpecificLanguageServerWrapper) startedWrapper;
 			}
 		}
+		try {
+			// concurrent callers for the same key wait until the wrapper is started
+			// and visible to the lookups of started servers, then get the same one
+			wrapper = startedServersByProject.computeIfAbsent(key, theKey -> {
+				LanguageServerWrapper newWrapper = new ProjectSpecificLanguageServerWrapper(project, serverDefinition);
+				try {
+					newWrapper.start();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				startedServers.add(newWrapper);
+				return newWrapper;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
 		return (ProjectSpecificLanguageServerWrapper) wrapper;
 	}
 
-	private static @NonNull List<LanguageServerWrapper> getStartedLSWrappers(
-			@NonNull IProject project) {
-		return startedServers.stream().filter(wrapper -> wrapper.canOperate(project))
-				.collect(Collectors.toList());
-		// TODO multi-root: also return servers which support multi-root?
-	}
-
 	private static Collection<LanguageServerWrapper> getMatchingStartedWrappers(@NonNull IFile file,
-	       @NonNull Predicate<ServerCapabilities> request) {
-		synchronized(startedServers) {
-			return startedServers.stream()
-					.filter(wrapper -> {
-						try {
-							return wrapper.isConnectedTo(file.getLocation()) ||
-								(LanguageServersRegistry.getInstance().matches(file, wrapper.serverDefinition) && wrapper.canOperate(file.getProject()));
-						} catch (IOException | CoreException e) {
-							LanguageServerPlugin.logError(e);
-							return false;
-						}
-					})
-				.filter(wrapper -> wrapper.getServerCapabilities() == null || request.test(wrapper.getServerCapabilities()))
-				.collect(Collectors.toList());
-		}
+	       @Nullable Predicate<ServerCapabilities> request) {
+		return startedServers.stream()
+				.filter(wrapper -> {
+					try {
+						return wrapper.isConnectedTo(file.getLocation()) ||
+							(LanguageServersRegistry.getInstance().matches(file, wrapper.serverDefinition) && wrapper.canOperate(file.getProject()));
+					} catch (IOException | CoreException e) {
+						LanguageServerPlugin.logError(e);
+						return false;
+					}
+				})
+			.filter(wrapper -> request == null || wrapper.getServerCapabilities() == null || request.test(wrapper.getServerCapabilities()))
+			.collect(Collectors.toList());
 	}
 
 	/**
@@ -370,4 +491,135 @@ public class LanguageServiceAccessor {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Returns the infos of the language servers of the document, once they are
+	 * initialized, which support the requested capabilities. Language servers of
+	 * a document are only looked for (and connected to the document) the first
+	 * time, in background, so this never blocks.
+	 *
+	 * @return the infos of the initialized language servers of the document
+	 *         matching the capabilities
+	 */
+	public static @NonNull CompletableFuture<@NonNull List<@NonNull LSPDocumentInfo>> getInitializedLSPDocumentInfos(
+			@NonNull IDocument document, @NonNull Predicate<ServerCapabilities> capabilityRequest) {
+		final IFile file = LSPEclipseUtils.getFile(document);
+		if (file == null || !file.exists()) {
+			//TODO handle case of plain file (no IFile)
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+		final URI fileUri = LSPEclipseUtils.toUri(file);
+		CompletableFuture<List<LanguageServerWrapper>> wrappers;
+		synchronized (documentServers) {
+			wrappers = documentServers.get(document);
+			if (wrappers == null) {
+				wrappers = connectLanguageServers(file, document);
+				documentServers.put(document, wrappers);
+			}
+		}
+		return wrappers.thenCompose(languageServerWrappers -> {
+			List<CompletableFuture<LSPDocumentInfo>> infos = languageServerWrappers.stream()
+					.map(wrapper -> wrapper.getInitializedServer(false).thenApply(server -> {
+						ServerCapabilities capabilities = wrapper.getServerCapabilities();
+						if (server == null || (capabilities != null && !capabilityRequest.test(capabilities))) {
+							return null;
+						}
+						return new LSPDocumentInfo(fileUri, document, wrapper, server);
+					}).exceptionally(t -> {
+						LanguageServerPlugin.logError(t);
+						return null;
+					})).collect(Collectors.toList());
+			return CompletableFuture.allOf(infos.toArray(new CompletableFuture<?>[infos.size()]))
+					.thenApply(theVoid -> infos.stream().map(CompletableFuture::join).filter(Objects::nonNull)
+							.collect(Collectors.toList()));
+		});
+	}
+
+	private static CompletableFuture<List<LanguageServerWrapper>> connectLanguageServers(@NonNull IFile file,
+			@NonNull IDocument document) {
+		return CompletableFuture.supplyAsync(() -> {
+			List<LanguageServerWrapper> res = new ArrayList<>();
+			try {
+				for (LanguageServerWrapper wrapper : getLSWrappers(file, null)) {
+					wrapper.connect(file, document);
+					res.add(wrapper);
+				}
+			} catch (IOException e) {
+				LanguageServerPlugin.logError(e);
+			}
+			return res;
+		});
+	}
+
+	/**
+	 * Stops the language servers which are only kept running, without any
+	 * connected document, until their idle timeout expires. Called when memory
+	 * runs low.
+	 *
+	 * @see LanguageServerWrapper#IDLE_TIMEOUT_PREFERENCE
+	 */
+	public static void stopIdleLanguageServers() {
+		for (LanguageServerWrapper wrapper : startedServers) {
+			wrapper.stopIfIdle();
+		}
+	}
+
+	/**
+	 * Empties the response caches of the started language servers, for example
+	 * when memory gets low.
+	 */
+	public static void clearResponseCaches() {
+		for (LanguageServerWrapper wrapper : startedServers) {
+			wrapper.getResponseCache().clear();
+		}
+	}
+
+	/**
+	 * Forgets the language servers resolved for the documents the given
+	 * language server may be used for, so that they connect to it.
+	 */
+	static void languageServerStarted(@NonNull LanguageServerWrapper wrapper) {
+		LanguageServersRegistry registry = LanguageServersRegistry.getInstance();
+		invalidateDocumentServers((file, wrappers) -> {
+			if (wrappers.contains(wrapper) || !wrapper.canOperate(file.getProject())) {
+				return false;
+			}
+			try {
+				return registry.matches(file, wrapper.serverDefinition);
+			} catch (IOException | CoreException e) {
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Forgets the language servers resolved for the documents connected to the
+	 * given language server, so that they are looked for again.
+	 */
+	static void languageServerStopped(@NonNull LanguageServerWrapper wrapper) {
+		invalidateDocumentServers((file, wrappers) -> wrappers.contains(wrapper));
+	}
+
+	/**
+	 * Forgets the language servers resolved for the documents matching the
+	 * filter, or which are still being resolved, so that they are looked for
+	 * again.
+	 */
+	private static void invalidateDocumentServers(
+			@NonNull BiPredicate<@NonNull IFile, @NonNull List<LanguageServerWrapper>> filter) {
+		Map<IDocument, CompletableFuture<List<LanguageServerWrapper>>> resolved;
+		synchronized (documentServers) {
+			resolved = new HashMap<>(documentServers);
+		}
+		for (Entry<IDocument, CompletableFuture<List<LanguageServerWrapper>>> entry : resolved.entrySet()) {
+			CompletableFuture<List<LanguageServerWrapper>> wrappers = entry.getValue();
+			IFile file = LSPEclipseUtils.getFile(entry.getKey());
+			if (!wrappers.isDone() || wrappers.isCompletedExceptionally() || file == null
+					|| filter.test(file, wrappers.join())) {
+				synchronized (documentServers) {
+					documentServers.remove(entry.getKey(), wrappers);
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Stops idle language servers and empties the response caches when the heap
+ * is still mostly used after a garbage collection, relying on the collection
+ * usage thresholds of the tenured heap memory pools. Thresholds already set by
+ * someone else are left unchanged.
+ */
+final class MemoryPressureMonitor {
+
+	/** ratio of the maximum size of a pool which is considered as low memory */
+	private static final double USAGE_THRESHOLD = 0.85;
+
+	private static final NotificationListener LISTENER = (notification, handback) -> {
+		if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+			LanguageServiceAccessor.stopIdleLanguageServers();
+			LanguageServiceAccessor.clearResponseCaches();
+		}
+	};
+
+	private static final List<MemoryPoolMXBean> monitoredPools = new ArrayList<>();
+
+	private MemoryPressureMonitor() {
+		// use static methods
+	}
+
+	static synchronized void install() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			long max = pool.getUsage() != null ? pool.getUsage().getMax() : -1;
+			// only the tenured pools support usage thresholds, young generation pools are
+			// often full after a collection without the heap being low
+			if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+					&& pool.isCollectionUsageThresholdSupported() && max > 0
+					&& pool.getCollectionUsageThreshold() == 0) {
+				pool.setCollectionUsageThreshold((long) (max * USAGE_THRESHOLD));
+				monitoredPools.add(pool);
+			}
+		}
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		if (memory instanceof NotificationEmitter) {
+			((NotificationEmitter) memory).addNotificationListener(LISTENER, null, null);
+		}
+	}
+
+	static synchronized void uninstall() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		if (memory instanceof NotificationEmitter) {
+			try {
+				((NotificationEmitter) memory).removeNotificationListener(LISTENER);
+			} catch (ListenerNotFoundException e) {
+				// not installed
+			}
+		}
+		for (MemoryPoolMXBean pool : monitoredPools) {
+			pool.setCollectionUsageThreshold(0);
+		}
+		monitoredPools.clear();
+	}
+
+}
@@ -0,0 +1,427 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.lsp4j.services.LanguageServer;
+
+/**
+ * Schedules the requests sent to a language server, so that requests the user
+ * is waiting for aren't delayed by the ones refreshing views in background.
+ * <p>
+ * Interactive requests are sent right away. Other requests are sent only while
+ * less than the maximum number of requests are in flight, queued otherwise,
+ * the ones for visible editors before the background ones. A request scheduled
+ * with a key supersedes the previous request with the same key: if the
+ * previous one is still queued or in flight and nobody else shares it, it gets
+ * cancelled.
+ * <p>
+ * Cancelling the result of a request cancels the request sent to the language
+ * server, which notifies the server about the cancellation, so that it doesn't
+ * keep computing an answer nobody waits for. Requests for a document are
+ * cancelled when the document is closed.
+ * <p>
+ * Requests scheduled with an identity share the result of an identical
+ * request still queued or in flight, as when several features ask for the same
+ * position, rather than being sent again. A queued request gets the highest
+ * priority of the callers sharing it.
+ */
+public final class RequestScheduler {
+
+	/**
+	 * Maximum number of requests in flight to a language server, before
+	 * non-interactive requests are queued, 4 by default. Can be set for a single
+	 * server definition by appending <code>'.' + definition id</code> to the key.
+	 */
+	public static final String MAX_IN_FLIGHT_PREFERENCE = "org.eclipse.lsp4e.requests.maxInFlight"; //$NON-NLS-1$
+
+	public enum Priority {
+		/** requests the user waits for, such as completion */
+		INTERACTIVE,
+		/** requests updating visible editors, such as highlights */
+		VISIBLE,
+		/** requests refreshing views, such as outline or code lenses */
+		BACKGROUND
+	}
+
+	private final int maxInFlight;
+	/** requests sent which result isn't completed yet */
+	private final Set<ScheduledRequest<?>> inFlight = new HashSet<>();
+	private final Map<Priority, Deque<ScheduledRequest<?>>> queues = new EnumMap<>(Priority.class);
+	private final Map<Object, ScheduledRequest<?>> requestsByKey = new HashMap<>();
+	private final Map<Object, ScheduledRequest<?>> requestsByIdentity = new HashMap<>();
+	private final AtomicLong completedRequests = new AtomicLong();
+	private final AtomicLong failedRequests = new AtomicLong();
+	private final AtomicLong cancelledRequests = new AtomicLong();
+	private final AtomicLong sharedRequestHits = new AtomicLong();
+
+	RequestScheduler(int maxInFlight) {
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.queues.put(Priority.VISIBLE, new ArrayDeque<>());
+		this.queues.put(Priority.BACKGROUND, new ArrayDeque<>());
+	}
+
+	private static final class ScheduledRequest<T> {
+
+		/** highest priority of the callers sharing the request */
+		private @NonNull Priority priority;
+		private final @Nullable URI document;
+		private final @Nullable Object key;
+		private final @Nullable Object identity;
+		/** callers waiting for the result, guarded by the scheduler */
+		private int subscribers = 1;
+		private final @NonNull Supplier<CompletableFuture<T>> sender;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private volatile @Nullable CompletableFuture<T> sent;
+
+		ScheduledRequest(@NonNull Priority priority, @Nullable URI document, @Nullable Object key,
+				@Nullable Object identity, @NonNull Supplier<CompletableFuture<T>> sender) {
+			this.priority = priority;
+			this.document = document;
+			this.key = key;
+			this.identity = identity;
+			this.sender = sender;
+		}
+
+		void send() {
+			if (this.result.isDone()) {
+				return;
+			}
+			CompletableFuture<T> request;
+			try {
+				request = this.sender.get();
+			} catch (RuntimeException e) {
+				this.result.completeExceptionally(e);
+				return;
+			}
+			this.sent = request;
+			request.whenComplete((value, error) -> {
+				if (error != null) {
+					this.result.completeExceptionally(error);
+				} else {
+					this.result.complete(value);
+				}
+			});
+			if (this.result.isCancelled()) {
+				// cancelled while being sent
+				request.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Schedules a request which isn't about a document.
+	 *
+	 * @see #schedule(Priority, URI, Object, Supplier)
+	 */
+	public <T> @NonNull CompletableFuture<T> schedule(@NonNull Priority priority, @Nullable Object key,
+			@NonNull Supplier<CompletableFuture<T>> sender) {
+		return schedule(priority, null, key, null, sender);
+	}
+
+	/**
+	 * Schedules a request which can't be shared.
+	 *
+	 * @see #schedule(Priority, URI, Object, Object, Supplier)
+	 */
+	public <T> @NonNull CompletableFuture<T> schedule(@NonNull Priority priority, @Nullable URI document,
+			@Nullable Object key, @NonNull Supplier<CompletableFuture<T>> sender) {
+		return schedule(priority, document, key, null, sender);
+	}
+
+	/**
+	 * Schedules a request.
+	 *
+	 * @param priority
+	 *            priority of the request
+	 * @param document
+	 *            the document the request is about, which closing cancels
+	 *            the request, or <code>null</code>
+	 * @param key
+	 *            identifies the requests superseding each other, typically
+	 *            the method and the document, or <code>null</code>
+	 * @param identity
+	 *            equal for identical requests, typically the method, the
+	 *            document and its version, and the parameters, or
+	 *            <code>null</code> if the request can't be shared
+	 * @param sender
+	 *            sends the request to the language server
+	 * @return the result of the request. Cancelling it removes the request from
+	 *         the queue or cancels the request sent, once all the callers
+	 *         sharing it cancelled their result.
+	 */
+	public <T> @NonNull CompletableFuture<T> schedule(@NonNull Priority priority, @Nullable URI document,
+			@Nullable Object key, @Nullable Object identity, @NonNull Supplier<CompletableFuture<T>> sender) {
+		ScheduledRequest<T> request;
+		ScheduledRequest<?> superseded = null;
+		boolean send;
+		synchronized (this) {
+			@SuppressWarnings("unchecked")
+			ScheduledRequest<T> identical = identity != null
+					? (ScheduledRequest<T>) this.requestsByIdentity.get(identity)
+					: null;
+			if (identical != null && !identical.result.isDone()) {
+				identical.subscribers++;
+				this.sharedRequestHits.incrementAndGet();
+				send = promote(identical, priority);
+				request = identical;
+			} else {
+				ScheduledRequest<T> newRequest = new ScheduledRequest<>(priority, document, key, identity, sender);
+				request = newRequest;
+				if (identity != null) {
+					this.requestsByIdentity.put(identity, request);
+				}
+				if (key != null) {
+					superseded = this.requestsByKey.put(key, request);
+					if (superseded != null && superseded.subscribers > 1) {
+						// still waited for by other callers
+						superseded = null;
+					}
+				}
+				send = priority == Priority.INTERACTIVE || this.inFlight.size() < this.maxInFlight;
+				if (send) {
+					this.inFlight.add(request);
+				} else {
+					this.queues.get(priority).add(request);
+				}
+				newRequest.result.whenComplete((value, error) -> done(newRequest));
+			}
+		}
+		if (superseded != null) {
+			superseded.result.cancel(true);
+		}
+		if (send) {
+			request.send();
+		}
+		return identity != null ? subscribe(request) : request.result;
+	}
+
+	/**
+	 * Raises the priority of a request queued, for a caller sharing it with a
+	 * higher priority.
+	 *
+	 * @return whether the request must be sent right away
+	 */
+	private boolean promote(ScheduledRequest<?> request, @NonNull Priority priority) {
+		if (priority.compareTo(request.priority) >= 0 || !this.queues.get(request.priority).remove(request)) {
+			return false;
+		}
+		request.priority = priority;
+		if (priority == Priority.INTERACTIVE) {
+			this.inFlight.add(request);
+			return true;
+		}
+		this.queues.get(priority).add(request);
+		return false;
+	}
+
+	/**
+	 * @return a result for a caller sharing the request, which cancellation
+	 *         only cancels the request once no other caller waits for it
+	 */
+	private <T> @NonNull CompletableFuture<T> subscribe(ScheduledRequest<T> request) {
+		CompletableFuture<T> res = new CompletableFuture<>();
+		request.result.whenComplete((value, error) -> {
+			if (error != null) {
+				res.completeExceptionally(error);
+			} else {
+				res.complete(value);
+			}
+		});
+		res.whenComplete((value, error) -> {
+			if (!res.isCancelled()) {
+				return;
+			}
+			boolean cancel;
+			synchronized (this) {
+				cancel = --request.subscribers == 0;
+			}
+			if (cancel) {
+				request.result.cancel(true);
+			}
+		});
+		return res;
+	}
+
+	private void done(ScheduledRequest<?> request) {
+		CompletableFuture<?> sent = request.sent;
+		if (request.result.isCancelled()) {
+			this.cancelledRequests.incrementAndGet();
+			if (sent != null) {
+				sent.cancel(true);
+			}
+		} else if (request.result.isCompletedExceptionally()) {
+			this.failedRequests.incrementAndGet();
+		} else {
+			this.completedRequests.incrementAndGet();
+		}
+		List<ScheduledRequest<?>> toSend = new ArrayList<>();
+		synchronized (this) {
+			if (request.key != null) {
+				this.requestsByKey.remove(request.key, request);
+			}
+			if (request.identity != null) {
+				this.requestsByIdentity.remove(request.identity, request);
+			}
+			if (!this.inFlight.remove(request)) {
+				this.queues.get(request.priority).remove(request);
+				return;
+			}
+			while (this.inFlight.size() < this.maxInFlight) {
+				ScheduledRequest<?> next = this.queues.get(Priority.VISIBLE).poll();
+				if (next == null) {
+					next = this.queues.get(Priority.BACKGROUND).poll();
+				}
+				if (next == null) {
+					break;
+				}
+				this.inFlight.add(next);
+				toSend.add(next);
+			}
+		}
+		toSend.forEach(ScheduledRequest::send);
+	}
+
+	/**
+	 * @return the number of requests in flight
+	 */
+	public synchronized int getInFlightCount() {
+		return this.inFlight.size();
+	}
+
+	/**
+	 * @return the number of requests waiting to be sent
+	 */
+	public synchronized int getQueuedCount() {
+		return this.queues.get(Priority.VISIBLE).size() + this.queues.get(Priority.BACKGROUND).size();
+	}
+
+	/**
+	 * @return the number of requests which got a result
+	 */
+	public long getCompletedCount() {
+		return this.completedRequests.get();
+	}
+
+	/**
+	 * @return the number of requests which failed, cancelled ones excluded
+	 */
+	public long getFailedCount() {
+		return this.failedRequests.get();
+	}
+
+	/**
+	 * @return the number of requests which were cancelled, because superseded,
+	 *         timed out or their document was closed
+	 */
+	public long getCancelledCount() {
+		return this.cancelledRequests.get();
+	}
+
+	/**
+	 * @return the number of requests which shared the result of an identical
+	 *         request queued or in flight rather than being sent
+	 */
+	public long getSharedCount() {
+		return this.sharedRequestHits.get();
+	}
+
+	/**
+	 * Cancels the queued and in flight requests, for example when the language
+	 * server gets stopped.
+	 */
+	void cancelAll() {
+		cancel(request -> true);
+	}
+
+	/**
+	 * Cancels the queued and in flight requests about the given document.
+	 */
+	void cancelRequests(@NonNull URI document) {
+		cancel(request -> document.equals(request.document));
+	}
+
+	private void cancel(Predicate<ScheduledRequest<?>> filter) {
+		List<ScheduledRequest<?>> requests = new ArrayList<>();
+		synchronized (this) {
+			this.queues.values().forEach(requests::addAll);
+			requests.addAll(this.inFlight);
+		}
+		requests.stream().filter(filter).forEach(request -> request.result.cancel(true));
+	}
+
+	/**
+	 * Like {@link CompletableFuture#thenCompose(Function)}, sending the request
+	 * once the language server is ready, but cancelling the returned future
+	 * also cancels the request sent, rather than only the composition.
+	 */
+	public static <T> @NonNull CompletableFuture<T> thenSend(@NonNull CompletableFuture<LanguageServer> languageServer,
+			@NonNull Function<LanguageServer, CompletableFuture<T>> request) {
+		CompletableFuture<T> res = new CompletableFuture<>();
+		languageServer.whenComplete((server, error) -> {
+			if (error != null) {
+				res.completeExceptionally(error);
+				return;
+			} else if (res.isDone()) {
+				// cancelled before being sent
+				return;
+			} else if (server == null) {
+				// stopped meanwhile
+				res.completeExceptionally(new IllegalStateException("Language server is not running")); //$NON-NLS-1$
+				return;
+			}
+			CompletableFuture<T> sent;
+			try {
+				sent = request.apply(server);
+			} catch (RuntimeException e) {
+				// eg the stream to the language server got closed
+				res.completeExceptionally(e);
+				return;
+			}
+			sent.whenComplete((value, sendError) -> {
+				if (sendError != null) {
+					res.completeExceptionally(sendError);
+				} else {
+					res.complete(value);
+				}
+			});
+			res.whenComplete((value, resError) -> {
+				if (res.isCancelled()) {
+					sent.cancel(true);
+				}
+			});
+		});
+		res.whenComplete((value, error) -> {
+			if (res.isCancelled()) {
+				languageServer.cancel(true);
+			}
+		});
+		return res;
+	}
+
+}
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Caches the responses of a language server to requests which only depend on
+ * the content of a document, such as document symbols or code lenses, so that
+ * views asking for them again are served without a round trip until the
+ * document changes.
+ * <p>
+ * Entries are keyed by method, document, document version and parameters.
+ * Only the latest version of each document is kept, and the least recently
+ * used entries are evicted beyond the maximum number of entries. The cache is
+ * also emptied when the heap runs low and when the language server stops.
+ * Cached responses are shared, so they must not be modified.
+ */
+public final class ResponseCache {
+
+	/**
+	 * Maximum number of responses cached for a language server, 100 by default,
+	 * 0 to disable the cache. Can be set for a single server definition by
+	 * appending <code>'.' + definition id</code> to the key.
+	 */
+	public static final String MAX_ENTRIES_PREFERENCE = "org.eclipse.lsp4e.responseCache.maxEntries"; //$NON-NLS-1$
+
+	private static final class Key {
+
+		private final @NonNull String method;
+		private final @NonNull URI document;
+		private final long version;
+		private final @NonNull Object params;
+
+		Key(@NonNull String method, @NonNull URI document, long version, @NonNull Object params) {
+			this.method = method;
+			this.document = document;
+			this.version = version;
+			this.params = params;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.version == other.version && this.method.equals(other.method)
+					&& this.document.equals(other.document) && this.params.equals(other.params);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.method, this.document, Long.valueOf(this.version), this.params);
+		}
+	}
+
+	private final int maxEntries;
+	/** responses in access order, the least recently used first */
+	private final Map<Key, Object> entries;
+	/** latest version of each document in the cache */
+	private final Map<URI, Long> versions = new HashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	ResponseCache(int maxEntries) {
+		this.maxEntries = Math.max(0, maxEntries);
+		this.entries = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Key, Object> eldest) {
+				return size() > ResponseCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached response to a request, or sends the request and caches
+	 * its response.
+	 *
+	 * @param method
+	 *            method of the request
+	 * @param document
+	 *            document the request is about
+	 * @param version
+	 *            version of the document, increasing on each change
+	 * @param params
+	 *            parameters of the request, compared with
+	 *            {@link Object#equals(Object)}
+	 * @param sender
+	 *            sends the request when its response isn't cached
+	 * @return the response
+	 */
+	public <T> @NonNull CompletableFuture<T> get(@NonNull String method, @NonNull URI document, long version,
+			@NonNull Object params, @NonNull Supplier<CompletableFuture<T>> sender) {
+		if (this.maxEntries == 0) {
+			return sender.get();
+		}
+		Key key = new Key(method, document, version, params);
+		synchronized (this) {
+			if (this.entries.containsKey(key)) {
+				this.hits.incrementAndGet();
+				@SuppressWarnings("unchecked")
+				T response = (T) this.entries.get(key);
+				return CompletableFuture.completedFuture(response);
+			}
+			Long cachedVersion = this.versions.get(document);
+			if (cachedVersion == null || cachedVersion.longValue() < version) {
+				// responses to previous versions won't be asked for anymore
+				this.entries.keySet().removeIf(entry -> entry.document.equals(document));
+				this.versions.put(document, Long.valueOf(version));
+			}
+		}
+		this.misses.incrementAndGet();
+		CompletableFuture<T> sent = sender.get();
+		// completed once the response is cached
+		CompletableFuture<T> res = new CompletableFuture<>();
+		sent.whenComplete((response, error) -> {
+			if (error != null) {
+				res.completeExceptionally(error);
+				return;
+			}
+			synchronized (this) {
+				Long cachedVersion = this.versions.get(document);
+				if (cachedVersion != null && cachedVersion.longValue() == version) {
+					this.entries.put(key, response);
+				}
+			}
+			res.complete(response);
+		});
+		res.whenComplete((response, error) -> {
+			if (res.isCancelled()) {
+				sent.cancel(true);
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Forgets the responses about the given document, for example when it gets
+	 * closed.
+	 */
+	synchronized void invalidate(@NonNull URI document) {
+		this.entries.keySet().removeIf(entry -> entry.document.equals(document));
+		this.versions.remove(document);
+	}
+
+	/**
+	 * Forgets all the responses.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.versions.clear();
+	}
+
+	/**
+	 * @return the number of responses cached
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the number of requests served from the cache
+	 */
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of requests sent because their response wasn't cached
+	 */
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+}
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Executor of the JSON-RPC connection of a language server instance: reads
+ * the messages sent by the language server and handles its requests. Each
+ * instance gets its own named and bounded executor, shut down when the
+ * instance is stopped, and counting its queued and running tasks.
+ * <p>
+ * The backing executors are created by a {@link Factory}, which can be
+ * replaced with {@link #setFactory(Factory)}, for example to run the tasks on
+ * virtual threads when available.
+ */
+public final class RpcExecutor extends AbstractExecutorService {
+
+	/** Maximum number of threads of the executor of each language server, 4 by default */
+	public static final String MAX_THREADS_PREFERENCE = "org.eclipse.lsp4e.rpc.maxThreads"; //$NON-NLS-1$
+
+	/**
+	 * Creates the executors backing the ones of the language servers.
+	 */
+	public interface Factory {
+
+		/**
+		 * @param name
+		 *            name of the executor, to be used for its threads
+		 * @param maxThreads
+		 *            maximum number of tasks running at once, tasks submitted
+		 *            beyond being queued
+		 * @return a new executor
+		 */
+		@NonNull ExecutorService create(@NonNull String name, int maxThreads);
+	}
+
+	/** Default factory, creating a pool of daemon threads which stop when not used */
+	public static final Factory DEFAULT_FACTORY = (name, maxThreads) -> {
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor res = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, name + " #" + threadCount.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				});
+		res.allowCoreThreadTimeOut(true);
+		return res;
+	};
+
+	private static volatile @NonNull Factory factory = DEFAULT_FACTORY;
+	private static final Set<RpcExecutor> executors = ConcurrentHashMap.newKeySet();
+
+	private final @NonNull String name;
+	private final @NonNull ExecutorService delegate;
+	private final AtomicInteger queuedTasks = new AtomicInteger();
+	private final AtomicInteger activeTasks = new AtomicInteger();
+	private final AtomicLong completedTasks = new AtomicLong();
+
+	private RpcExecutor(@NonNull String name, @NonNull ExecutorService delegate) {
+		this.name = name;
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Sets the factory of the executors of the language servers started from
+	 * now on.
+	 */
+	public static void setFactory(@NonNull Factory factory) {
+		RpcExecutor.factory = factory;
+	}
+
+	/**
+	 * @return the executors of the language server instances which aren't shut
+	 *         down
+	 */
+	public static @NonNull List<RpcExecutor> getExecutors() {
+		return Collections.unmodifiableList(new ArrayList<>(executors));
+	}
+
+	static @NonNull RpcExecutor create(@NonNull String name) {
+		int maxThreads = Math.max(1, Platform.getPreferencesService().getInt(LanguageServerPlugin.PLUGIN_ID,
+				MAX_THREADS_PREFERENCE, 4, null));
+		RpcExecutor res = new RpcExecutor(name, factory.create(name, maxThreads));
+		executors.add(res);
+		return res;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		this.queuedTasks.incrementAndGet();
+		try {
+			this.delegate.execute(() -> {
+				this.queuedTasks.decrementAndGet();
+				this.activeTasks.incrementAndGet();
+				try {
+					command.run();
+				} finally {
+					this.activeTasks.decrementAndGet();
+					this.completedTasks.incrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.queuedTasks.decrementAndGet();
+			throw e;
+		}
+	}
+
+	public @NonNull String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return the number of tasks waiting for a thread
+	 */
+	public int getQueuedTaskCount() {
+		return this.queuedTasks.get();
+	}
+
+	/**
+	 * @return the number of tasks running, including the one reading the
+	 *         messages of the language server
+	 */
+	public int getActiveTaskCount() {
+		return this.activeTasks.get();
+	}
+
+	public long getCompletedTaskCount() {
+		return this.completedTasks.get();
+	}
+
+	@Override
+	public void shutdown() {
+		executors.remove(this);
+		this.delegate.shutdown();
+	}
+
+	@Override
+	public @NonNull List<Runnable> shutdownNow() {
+		executors.remove(this);
+		List<Runnable> res = this.delegate.shutdownNow();
+		this.queuedTasks.addAndGet(-res.size());
+		return res;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return this.delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.delegate.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return this.name + " [queued=" + getQueuedTaskCount() + ", active=" + getActiveTaskCount() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", completed=" + getCompletedTaskCount() + ']'; //$NON-NLS-1$
+	}
+
+}
@@ -11,15 +11,19 @@
  *******************************************************************************/
 package org.eclipse.lsp4e.operations.codelens;
 
-import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.action.ContributionItem;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4e.ui.Messages;
 import org.eclipse.lsp4j.CodeLens;
 import org.eclipse.lsp4j.CodeLensParams;
@@ -34,20 +38,19 @@ import org.eclipse.ui.texteditor.ITextEditor;
 
 public class LSPCodeLensMenu extends ContributionItem implements IWorkbenchContribution {
 
-	private LSPDocumentInfo info;
+	private static final String CODE_LENS_METHOD = "textDocument/codeLens"; //$NON-NLS-1$
+
+	private CompletableFuture<List<LSPDocumentInfo>> infos;
 
 	@Override
 	public void initialize(IServiceLocator serviceLocator) {
 		ITextEditor editor = LSPEclipseUtils.getActiveTextEditor();
-		if (editor != null) {
-			Collection<LSPDocumentInfo> infos = LanguageServiceAccessor.getLSPDocumentInfosFor(
-					LSPEclipseUtils.getDocument(editor),
+		IDocument document = editor != null ? LSPEclipseUtils.getDocument(editor) : null;
+		if (document != null) {
+			this.infos = LanguageServiceAccessor.getInitializedLSPDocumentInfos(document,
 					capabilities -> capabilities.getCodeLensProvider() != null);
-			if (!infos.isEmpty()) {
-				this.info = infos.iterator().next();
-			} else {
-				this.info = null;
-			}
+		} else {
+			this.infos = null;
 		}
 	}
 
@@ -55,41 +58,54 @@ public class LSPCodeLensMenu extends ContributionItem implements IWorkbenchContr
 	public void fill(final Menu menu, int index) {
 		final MenuItem item = new MenuItem(menu, SWT.NONE, index);
 		item.setEnabled(false);
-		if (info == null){
+		if (infos == null){
 			item.setText(Messages.notImplemented);
 			return;
 		}
 
 		item.setText(Messages.computing);
-		CodeLensParams param = new CodeLensParams(new TextDocumentIdentifier(info.getFileUri().toString()));;
-		info.getInitializedLanguageClient()
-				.thenCompose(languageServer -> languageServer.getTextDocumentService().codeLens(param))
-				.whenComplete((t, u) -> {
-					UIJob job = new UIJob(menu.getDisplay(), Messages.updateCodelensMenu_job) {
-						@Override
-						public IStatus runInUIThread(IProgressMonitor monitor) {
-							if (u != null) {
-								// log?
-								item.setText(u.getMessage());
-							} else if (t != null) {
-								for (CodeLens lens : t) {
-									if (lens != null && lens.getCommand() != null) {
-										final MenuItem item = new MenuItem(menu, SWT.NONE, index);
-										item.setText(lens.getCommand().getTitle());
-										item.setEnabled(false);
-									}
-								}
-							}
-							if (menu.getItemCount() == 1) {
-								item.setText(Messages.codeLens_emptyMenu);
-							} else {
-								item.dispose();
+		final CompletableFuture<List<LSPDocumentInfo>> documentInfosFuture = infos;
+		documentInfosFuture.thenCompose(documentInfos -> {
+			if (documentInfos.isEmpty()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			LSPDocumentInfo info = documentInfos.get(0);
+			CodeLensParams param = new CodeLensParams(new TextDocumentIdentifier(info.getFileUri().toString()));
+			return info.sendCachedRequest(Priority.INTERACTIVE, CODE_LENS_METHOD, param,
+					languageServer -> languageServer.getTextDocumentService().codeLens(param));
+		}).whenComplete((t, u) -> {
+			UIJob job = new UIJob(menu.getDisplay(), Messages.updateCodelensMenu_job) {
+				@Override
+				public IStatus runInUIThread(IProgressMonitor monitor) {
+					if (documentInfosFuture.isCompletedExceptionally()) {
+						// language servers of the document couldn't be found
+						item.setText(Messages.codeLens_emptyMenu);
+						return Status.OK_STATUS;
+					} else if (documentInfosFuture.getNow(Collections.emptyList()).isEmpty()) {
+						item.setText(Messages.notImplemented);
+						return Status.OK_STATUS;
+					} else if (u != null) {
+						// log?
+						item.setText(u.getMessage());
+					} else if (t != null) {
+						for (CodeLens lens : t) {
+							if (lens != null && lens.getCommand() != null) {
+								final MenuItem item = new MenuItem(menu, SWT.NONE, index);
+								item.setText(lens.getCommand().getTitle());
+								item.setEnabled(false);
 							}
-							return Status.OK_STATUS;
 						}
-					};
-					job.schedule();
-				});
+					}
+					if (menu.getItemCount() == 1) {
+						item.setText(Messages.codeLens_emptyMenu);
+					} else {
+						item.dispose();
+					}
+					return Status.OK_STATUS;
+				}
+			};
+			job.schedule();
+		});
 		super.fill(menu, index);
 	}
 
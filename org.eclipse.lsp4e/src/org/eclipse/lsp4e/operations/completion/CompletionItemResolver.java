@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e.operations.completion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler;
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionOptions;
+import org.eclipse.lsp4j.ServerCapabilities;
+
+/**
+ * Sends completionItem/resolve requests for the proposals of a content assist
+ * processor. Resolved items are kept in a small LRU cache, and a request still
+ * pending for an item is reused instead of sending another one, so that
+ * proposals can be resolved ahead of their selection.
+ */
+final class CompletionItemResolver {
+
+	private static final int CACHE_SIZE = 200;
+
+	private final Map<Object, CompletableFuture<CompletionItem>> resolvedItems = new LinkedHashMap<Object, CompletableFuture<CompletionItem>>(
+			CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Object, CompletableFuture<CompletionItem>> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+	/** requests to language servers, kept to cancel them */
+	private final List<CompletableFuture<CompletionItem>> pendingRequests = new ArrayList<>();
+
+	static boolean supportsResolve(@NonNull LSPDocumentInfo info) {
+		ServerCapabilities capabilities = info.getCapabilites();
+		if (capabilities == null) {
+			return false;
+		}
+		CompletionOptions options = capabilities.getCompletionProvider();
+		return options != null && Boolean.TRUE.equals(options.getResolveProvider());
+	}
+
+	/**
+	 * @return the resolved item, or <code>null</code> if the language server
+	 *         doesn't support resolving completion items
+	 */
+	@Nullable CompletableFuture<CompletionItem> resolve(@NonNull LSPDocumentInfo info, @NonNull CompletionItem item) {
+		if (!supportsResolve(info)) {
+			return null;
+		}
+		Object key = item.getData() != null ? new DataKey(info, item) : new IdentityKey(item);
+		CompletableFuture<CompletionItem> res;
+		synchronized (this) {
+			res = this.resolvedItems.get(key);
+			if (res != null) {
+				return res;
+			}
+			// cancelling the result also cancels the request, even if not sent yet
+			res = RequestScheduler.thenSend(info.getInitializedLanguageClient(),
+					languageServer -> languageServer.getTextDocumentService().resolveCompletionItem(item));
+			this.resolvedItems.put(key, res);
+			addPendingRequest(res);
+		}
+		CompletableFuture<CompletionItem> future = res;
+		res.whenComplete((resolved, error) -> {
+			if (error != null) {
+				// don't keep failures, so that item gets resolved again
+				synchronized (this) {
+					this.resolvedItems.remove(key, future);
+				}
+			}
+		});
+		return res;
+	}
+
+	private synchronized void addPendingRequest(CompletableFuture<CompletionItem> request) {
+		this.pendingRequests.removeIf(CompletableFuture::isDone);
+		this.pendingRequests.add(request);
+	}
+
+	/**
+	 * Cancels the pending requests, which also notifies the language servers
+	 * about the cancellation, or prevents them from being sent. Items already
+	 * resolved are kept.
+	 */
+	synchronized void cancel() {
+		this.pendingRequests.forEach(request -> request.cancel(true));
+		this.pendingRequests.clear();
+		this.resolvedItems.values().removeIf(resolvedItem -> {
+			if (!resolvedItem.isDone()) {
+				resolvedItem.cancel(true);
+				return true;
+			}
+			return resolvedItem.isCompletedExceptionally();
+		});
+	}
+
+	/**
+	 * Identifies an item which data was set by the language server, so that
+	 * the same item received in another completion list is resolved only once.
+	 */
+	private static final class DataKey {
+
+		private final LSPDocumentInfo info;
+		private final String label;
+		private final Object data;
+
+		DataKey(LSPDocumentInfo info, CompletionItem item) {
+			this.info = info;
+			this.label = item.getLabel();
+			this.data = item.getData();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DataKey)) {
+				return false;
+			}
+			DataKey other = (DataKey) obj;
+			return this.info == other.info && Objects.equals(this.label, other.label)
+					&& Objects.equals(this.data, other.data);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.label, this.data);
+		}
+	}
+
+	private static final class IdentityKey {
+
+		private final CompletionItem item;
+
+		IdentityKey(CompletionItem item) {
+			this.item = item;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey) obj).item == this.item;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.item);
+		}
+	}
+}
@@ -28,10 +28,18 @@ import org.eclipse.swt.SWT;
 public class LSCompletionProposal extends LSIncompleteCompletionProposal
 		implements ICompletionProposalExtension, ICompletionProposalExtension2 {
 
+	private String filterKeySource;
+	private String filterKey;
+
 	public LSCompletionProposal(@NonNull CompletionItem item, int offset, LSPDocumentInfo info) {
 		super(item, offset, info);
 	}
 
+	LSCompletionProposal(@NonNull CompletionItem item, int offset, LSPDocumentInfo info,
+			@NonNull CompletionItemResolver resolver) {
+		super(item, offset, info, resolver);
+	}
+
 	@Override
 	public boolean isValidFor(IDocument document, int offset) {
 		return validate(document, offset, null);
@@ -48,28 +56,30 @@ public class LSCompletionProposal extends LSIncompleteCompletionProposal
 
 	@Override
 	public boolean validate(IDocument document, int offset, DocumentEvent event) {
+		return validate(new TypedText(document, offset));
+	}
+
+	/**
+	 * Validates the proposal against the typed text, which can be shared by the
+	 * proposals of a list so that the document is not read for each of them.
+	 */
+	boolean validate(TypedText typedText) {
 		if (item.getLabel() == null || item.getLabel().isEmpty()) {
 			return false;
 		}
-		if (offset < this.bestOffset) {
+		if (typedText.offset < this.bestOffset) {
 			return false;
 		}
 		try {
-			String subString = document.get(this.bestOffset, offset - this.bestOffset);
-			String insert = getInsertText();
+			int start = this.bestOffset;
 			if (item.getTextEdit() != null) {
-				int start = LSPEclipseUtils.toOffset(item.getTextEdit().getRange().getStart(), document);
-				int end = offset;
-
-				subString = document.get(start, end - start);
-				insert = item.getTextEdit().getNewText();
+				start = LSPEclipseUtils.toOffset(item.getTextEdit().getRange().getStart(), typedText.document);
 			}
-
+			String typed = typedText.from(start);
+			String filterKey = getFilterKey();
 			int lastIndex = 0;
-			insert = insert.toLowerCase();
-			subString = subString.toLowerCase();
-			for (Character c : subString.toCharArray()) {
-				int index = insert.indexOf(c, lastIndex);
+			for (int i = 0; i < typed.length(); i++) {
+				int index = filterKey.indexOf(Character.toLowerCase(typed.charAt(i)), lastIndex);
 				if (index < 0) {
 					return false;
 				} else {
@@ -82,6 +92,24 @@ public class LSCompletionProposal extends LSIncompleteCompletionProposal
 		return true;
 	}
 
+	/**
+	 * @return the lower case text typed characters are matched against: the
+	 *         filterText of the item if any, the inserted text otherwise. It is
+	 *         computed once, as proposals are validated on every keystroke.
+	 */
+	private String getFilterKey() {
+		String source = item.getFilterText();
+		if (source == null || source.isEmpty()) {
+			source = getInsertText();
+		}
+		if (source != this.filterKeySource) {
+			// item can be updated when resolved
+			this.filterKeySource = source;
+			this.filterKey = source.toLowerCase();
+		}
+		return this.filterKey;
+	}
+
 	@Override
 	public void apply(ITextViewer viewer, char trigger, int stateMask, int offset) {
 		this.viewer = viewer;
@@ -13,85 +13,177 @@
 package org.eclipse.lsp4e.operations.completion;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
-import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.NonNull;
-import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ContentAssistEvent;
 import org.eclipse.jface.text.contentassist.ContextInformation;
 import org.eclipse.jface.text.contentassist.ContextInformationValidator;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.contentassist.IContextInformation;
 import org.eclipse.jface.text.contentassist.IContextInformationValidator;
+import org.eclipse.jface.text.source.ContentAssistantFacade;
+import org.eclipse.jface.text.source.ISourceViewer;
+import org.eclipse.jface.text.source.ISourceViewerExtension4;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4e.ui.Messages;
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.ServerCapabilities;
+import org.eclipse.lsp4j.SignatureHelp;
 import org.eclipse.lsp4j.SignatureInformation;
 import org.eclipse.lsp4j.TextDocumentPositionParams;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.eclipse.xtext.xbase.lib.Pair;
 
 public class LSContentAssistProcessor implements IContentAssistProcessor {
 
-	private static final long TRIGGERS_TIMEOUT = 50;
 	private static final long COMPLETION_TIMEOUT = 1000;
+	/**
+	 * Time other language servers are given, once one returned its proposals,
+	 * before proposals are shown
+	 */
+	private static final long COMPLETION_GRACE_PERIOD = 100;
+	/** Number of proposals following the selected one which items are resolved ahead */
+	private static final int RESOLVE_PREFETCH_COUNT = 5;
+	/** Maximum number of characters between an offset and the argument list it is in */
+	private static final int MAX_CALL_SITE_DISTANCE = 2000;
+	private static final String SIGNATURE_HELP_METHOD = "textDocument/signatureHelp"; //$NON-NLS-1$
 	private List<LSPDocumentInfo> infos;
-	private char[] triggerChars;
-	private char[] contextTriggerChars;
+	private final TriggerCharacters triggerChars = new TriggerCharacters(LSPDocumentInfo::getCompletionTriggerCharacters);
+	private final TriggerCharacters contextTriggerChars = new TriggerCharacters(LSPDocumentInfo::getSignatureHelpTriggerCharacters);
 	private Pair<IDocument, Job> findInfoJob;
 	private String errorMessage;
 	private boolean isIncomplete = true;
+	private CompletionRequest currentRequest;
+	private ContentAssistantFacade contentAssistantFacade;
+	private boolean assistSessionActive;
+	private CompleteCompletionList completeList;
+	private final CompletionItemResolver resolver = new CompletionItemResolver();
+	private ICompletionProposal[] computedProposals = new ICompletionProposal[0];
+	private ContextInformationResult contextInformationResult;
+	private final List<CompletableFuture<SignatureHelp>> signatureHelpRequests = new ArrayList<>();
 
 	public LSContentAssistProcessor() {
 	}
 
-	private Comparator<LSCompletionProposal> proposalConparoator = (o1, o2) -> {
-		if (o1.getBestOffset() < o2.getBestOffset()) {
-			return -1;
-		} else if (o1.getBestOffset() > o2.getBestOffset()) {
-			return +1;
-		} else if (o1.getNumberOfModifsBeforeOffset() < o2.getNumberOfModifsBeforeOffset()) {
-			return -1;
-		} else if (o1.getNumberOfModifsBeforeOffset() > o2.getNumberOfModifsBeforeOffset()) {
-			return +1;
-		} else {
-			String c1 = o1.getSortText();
-			String c2 = o2.getSortText();
-			if (c1 == null) {
-				return -1;
+	/**
+	 * Sorts proposals by the offset they start at, then by the number of
+	 * characters they change before the completion offset, then by sort text
+	 * ignoring case, proposals without sort text first. These keys are computed
+	 * once per proposal, not on each comparison, as completion lists can have
+	 * thousands of items.
+	 */
+	private static List<LSCompletionProposal> sortProposals(List<LSCompletionProposal> proposals) {
+		int size = proposals.size();
+		int[] bestOffsets = new int[size];
+		int[] numberOfModifs = new int[size];
+		String[] sortTexts = new String[size];
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			LSCompletionProposal proposal = proposals.get(i);
+			bestOffsets[i] = proposal.getBestOffset();
+			numberOfModifs[i] = proposal.getNumberOfModifsBeforeOffset();
+			sortTexts[i] = proposal.getSortText();
+			order[i] = i;
+		}
+		// least significant key first, each sort keeping the order of equal keys
+		order = sortBy(order, rankSortTexts(sortTexts));
+		order = sortBy(order, numberOfModifs);
+		order = sortBy(order, bestOffsets);
+		List<LSCompletionProposal> res = new ArrayList<>(size);
+		for (int index : order) {
+			res.add(proposals.get(index));
+		}
+		return res;
+	}
+
+	/**
+	 * @return the rank of each sort text among the others ignoring case, -1 for
+	 *         <code>null</code>
+	 */
+	private static int[] rankSortTexts(String[] sortTexts) {
+		String[] sorted = new String[sortTexts.length];
+		int count = 0;
+		for (String sortText : sortTexts) {
+			if (sortText != null) {
+				sorted[count++] = sortText;
 			}
-			return c1.compareToIgnoreCase(c2);
 		}
-	};
+		Arrays.sort(sorted, 0, count, String.CASE_INSENSITIVE_ORDER);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || String.CASE_INSENSITIVE_ORDER.compare(sorted[distinct - 1], sorted[i]) != 0) {
+				sorted[distinct++] = sorted[i];
+			}
+		}
+		int[] ranks = new int[sortTexts.length];
+		for (int i = 0; i < sortTexts.length; i++) {
+			ranks[i] = sortTexts[i] == null ? -1
+					: Arrays.binarySearch(sorted, 0, distinct, sortTexts[i], String.CASE_INSENSITIVE_ORDER);
+		}
+		return ranks;
+	}
+
+	/**
+	 * Stable sort of indexes by an int key, packing the key and the position in
+	 * the current order into a long so that a primitive array is sorted.
+	 *
+	 * @return the indexes ordered by key
+	 */
+	private static int[] sortBy(int[] order, int[] keys) {
+		long[] packed = new long[order.length];
+		for (int i = 0; i < order.length; i++) {
+			packed[i] = ((long) keys[order[i]] << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] res = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			res[i] = order[(int) packed[i]];
+		}
+		return res;
+	}
 
 	@Override
 	public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset) {
-		checkInfoAndJob(viewer.getDocument());
+		IDocument document = viewer.getDocument();
+		checkInfoAndJob(document);
 		if (infos == null) {
 			try {
 				this.findInfoJob.getValue().join(COMPLETION_TIMEOUT, new NullProgressMonitor());
@@ -113,28 +205,72 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 			return new ICompletionProposal[0];
 		}
 
+		listenToAssistSession(viewer);
+		this.assistSessionActive = true;
+		List<LSCompletionProposal> refiltered = refilterCompleteList(document, offset);
+		if (refiltered != null) {
+			this.isIncomplete = false;
+			this.computedProposals = sortProposals(refiltered).toArray(new ICompletionProposal[refiltered.size()]);
+			return this.computedProposals;
+		}
 		List<ICompletionProposal> proposals = new ArrayList<>();
 		try {
-			TextDocumentPositionParams param = LSPEclipseUtils.toTextDocumentPosistionParams(
-					applicableInfos.get(0).getFileUri(),
-					offset, viewer.getDocument());
-			List<ICompletionProposal> lsProposals = Collections.synchronizedList(new ArrayList<>());
-			// starts requests to various LS
-			applicableInfos.parallelStream().forEach(info -> {
+			CompletionRequest request = this.currentRequest;
+			// only reuse a request still waiting for late responses, so that
+			// proposals are always requested again on explicit invocation
+			if (request == null || !request.lateResponsesMerged || !request.matches(document, offset)) {
+				if (request != null) {
+					request.cancel();
+				}
+				request = sendCompletionRequest(document, offset, applicableInfos);
+				this.currentRequest = request;
+			}
+			boolean complete = waitForResponses(request);
+			List<ICompletionProposal> lsProposals = new ArrayList<>();
+			// the proposals of complete lists among them, sorted if all of them are
+			List<LSCompletionProposal> completeProposals = new ArrayList<>();
+			TypedText typedText = new TypedText(document, offset);
+			// all proposals, if all servers answered with a complete list
+			List<LSCompletionProposal> completeListProposals = complete ? new ArrayList<>() : null;
+			for (Entry<LSPDocumentInfo, CompletableFuture<Either<List<CompletionItem>, CompletionList>>> response : request.responses.entrySet()) {
+				if (!response.getValue().isDone()) {
+					continue;
+				}
 				try {
-					Either<List<CompletionItem>, CompletionList> items = info.getInitializedLanguageClient().get()
-							.getTextDocumentService().completion(param).get();
-					lsProposals.addAll(toProposals(offset, items, info));
-				} catch (InterruptedException | ExecutionException ex) {
+					Either<List<CompletionItem>, CompletionList> completionList = response.getValue().getNow(null);
+					List<ICompletionProposal> responseProposals = toProposals(offset, completionList, response.getKey());
+					if (completeListProposals != null && completionList != null) {
+						if (completionList.isRight() && !completionList.getRight().isIncomplete()) {
+							for (ICompletionProposal proposal : responseProposals) {
+								completeListProposals.add((LSCompletionProposal) proposal);
+							}
+						} else {
+							completeListProposals = null;
+						}
+					}
+					for (ICompletionProposal proposal : responseProposals) {
+						if (!(proposal instanceof LSCompletionProposal)) {
+							lsProposals.add(proposal);
+						} else if (((LSCompletionProposal) proposal).validate(typedText)) {
+							lsProposals.add(proposal);
+							completeProposals.add((LSCompletionProposal) proposal);
+						}
+					}
+				} catch (CompletionException | CancellationException ex) {
 					LanguageServerPlugin.logError(ex);
 					// TODO: consider showing an error message as proposal?
-					LSContentAssistProcessor.this.errorMessage = ex.getMessage();
+					this.errorMessage = ex.getMessage();
+					completeListProposals = null;
 				}
-			});
-			if (!isIncomplete) {
-				List<LSCompletionProposal> CompletionProposal = (List<LSCompletionProposal>) (List<?>) lsProposals;
-				CompletionProposal.sort(proposalConparoator);
-				proposals.addAll(CompletionProposal);
+			}
+			if (!complete) {
+				mergeLateResponses(request, viewer);
+			}
+			if (completeListProposals != null && !completeListProposals.isEmpty()) {
+				this.completeList = new CompleteCompletionList(document, offset, completeListProposals);
+			}
+			if (!isIncomplete && completeProposals.size() == lsProposals.size()) {
+				proposals.addAll(sortProposals(completeProposals));
 			} else {
 				proposals.addAll(lsProposals);
 			}
@@ -143,7 +279,308 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 			this.errorMessage = ex.getMessage();
 			proposals.add(0, createErrorProposal(offset, ex));
 		}
-		return proposals.toArray(new ICompletionProposal[proposals.size()]);
+		this.computedProposals = proposals.toArray(new ICompletionProposal[proposals.size()]);
+		return this.computedProposals;
+	}
+
+	/**
+	 * @return the proposals of the last complete list valid at the offset, or
+	 *         <code>null</code> if the list can't be reused and proposals have to
+	 *         be requested to the language servers.
+	 */
+	private List<LSCompletionProposal> refilterCompleteList(IDocument document, int offset) {
+		CompleteCompletionList list = this.completeList;
+		if (list == null) {
+			return null;
+		}
+		List<LSCompletionProposal> proposals = list.refilter(document, offset);
+		if (proposals == null) {
+			list.dispose();
+			this.completeList = null;
+		}
+		return proposals;
+	}
+
+	private CompletionRequest sendCompletionRequest(IDocument document, int offset, List<LSPDocumentInfo> applicableInfos)
+			throws BadLocationException {
+		CompletionRequest request = new CompletionRequest(document, offset);
+		TextDocumentPositionParams param = LSPEclipseUtils.toTextDocumentPosistionParams(
+				applicableInfos.get(0).getFileUri(), offset, document);
+		for (LSPDocumentInfo info : applicableInfos) {
+			request.responses.put(info, info.sendRequest(Priority.INTERACTIVE, null, languageServer -> {
+				CompletableFuture<Either<List<CompletionItem>, CompletionList>> serverRequest = languageServer
+						.getTextDocumentService().completion(param);
+				request.addServerRequest(serverRequest);
+				return serverRequest;
+			}));
+		}
+		return request;
+	}
+
+	/**
+	 * Waits for the responses of the language servers until all of them are
+	 * received, or until the deadline of the request, or shortly after a first
+	 * response was received so that a slow server doesn't delay proposals of the
+	 * other ones.
+	 *
+	 * @return whether all responses were received
+	 */
+	private boolean waitForResponses(CompletionRequest request) {
+		CompletableFuture<?>[] responses = request.responses.values().toArray(new CompletableFuture<?>[request.responses.size()]);
+		// a server failing fast doesn't cut the wait for the other ones, only a response does
+		CompletableFuture<Void> firstResponse = new CompletableFuture<>();
+		for (CompletableFuture<?> response : responses) {
+			response.thenRun(() -> firstResponse.complete(null));
+		}
+		CompletableFuture.allOf(responses).whenComplete((theVoid, error) -> firstResponse.complete(null));
+		try {
+			long remaining = request.deadline - System.currentTimeMillis();
+			if (remaining > 0) {
+				firstResponse.get(remaining, TimeUnit.MILLISECONDS);
+			}
+		} catch (TimeoutException | ExecutionException | CancellationException e) {
+			// proceed with what was received
+		} catch (InterruptedException e) {
+			LanguageServerPlugin.logError(e);
+			Thread.currentThread().interrupt();
+		}
+		try {
+			long remaining = Math.min(request.deadline - System.currentTimeMillis(), COMPLETION_GRACE_PERIOD);
+			if (remaining > 0) {
+				CompletableFuture.allOf(responses).get(remaining, TimeUnit.MILLISECONDS);
+			}
+		} catch (TimeoutException | ExecutionException | CancellationException e) {
+			// proceed with what was received
+		} catch (InterruptedException e) {
+			LanguageServerPlugin.logError(e);
+			Thread.currentThread().interrupt();
+		}
+		return Arrays.stream(responses).allMatch(CompletableFuture::isDone);
+	}
+
+	/**
+	 * Proposals of servers which answer after the proposals were computed are
+	 * added by recomputing proposals when their response is received, as long
+	 * as the assist session is still active on the same document and offset.
+	 * Servers which didn't answer by the request deadline are cancelled.
+	 */
+	private void mergeLateResponses(CompletionRequest request, ITextViewer viewer) {
+		if (request.lateResponsesMerged) {
+			return;
+		}
+		request.lateResponsesMerged = true;
+		StyledText widget = viewer.getTextWidget();
+		if (widget == null || widget.isDisposed()) {
+			request.cancel();
+			return;
+		}
+		Display display = widget.getDisplay();
+		request.responses.values().stream().filter(response -> !response.isDone())
+				.forEach(response -> response.thenRun(() -> display.asyncExec(() -> {
+					if (request == this.currentRequest && this.assistSessionActive && !widget.isDisposed()
+							&& request.matches(viewer.getDocument(), viewer.getSelectedRange().x)
+							&& viewer instanceof ITextOperationTarget
+							&& ((ITextOperationTarget) viewer).canDoOperation(ISourceViewer.CONTENTASSIST_PROPOSALS)) {
+						((ITextOperationTarget) viewer).doOperation(ISourceViewer.CONTENTASSIST_PROPOSALS);
+					}
+				})));
+		Job cancelJob = new Job("Cancel late completion requests") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				request.cancel();
+				return Status.OK_STATUS;
+			}
+		};
+		cancelJob.setSystem(true);
+		cancelJob.schedule(Math.max(0, request.deadline - System.currentTimeMillis()));
+	}
+
+	private void listenToAssistSession(ITextViewer viewer) {
+		if (!(viewer instanceof ISourceViewerExtension4)) {
+			return;
+		}
+		ContentAssistantFacade facade = ((ISourceViewerExtension4) viewer).getContentAssistantFacade();
+		if (facade == null || facade == this.contentAssistantFacade) {
+			return;
+		}
+		if (this.contentAssistantFacade != null) {
+			this.contentAssistantFacade.removeCompletionListener(this.completionListener);
+		}
+		facade.addCompletionListener(this.completionListener);
+		this.contentAssistantFacade = facade;
+	}
+
+	/**
+	 * Resolves the items of the selected proposal and of the ones following it,
+	 * so that their additional info is ready when they get selected.
+	 */
+	private void prefetchResolvedItems(ICompletionProposal selectedProposal) {
+		ICompletionProposal[] proposals = this.computedProposals;
+		for (int i = 0; i < proposals.length; i++) {
+			if (proposals[i] == selectedProposal) {
+				for (int j = i; j < proposals.length && j <= i + RESOLVE_PREFETCH_COUNT; j++) {
+					if (proposals[j] instanceof LSIncompleteCompletionProposal) {
+						((LSIncompleteCompletionProposal) proposals[j]).resolveItem();
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	private final ICompletionListener completionListener = new ICompletionListener() {
+		@Override
+		public void assistSessionStarted(ContentAssistEvent event) {
+			assistSessionActive = true;
+		}
+
+		@Override
+		public void assistSessionEnded(ContentAssistEvent event) {
+			assistSessionActive = false;
+			CompletionRequest request = currentRequest;
+			if (request != null) {
+				request.cancel();
+				currentRequest = null;
+			}
+			resolver.cancel();
+		}
+
+		@Override
+		public void selectionChanged(ICompletionProposal proposal, boolean smartToggle) {
+			prefetchResolvedItems(proposal);
+		}
+	};
+
+	/**
+	 * Completion requested to language servers for a given document state and
+	 * offset.
+	 */
+	private static final class CompletionRequest {
+
+		private final IDocument document;
+		private final int offset;
+		private final long modificationStamp;
+		private final long deadline;
+		private final Map<LSPDocumentInfo, CompletableFuture<Either<List<CompletionItem>, CompletionList>>> responses = new LinkedHashMap<>();
+		private final List<CompletableFuture<?>> serverRequests = new ArrayList<>();
+		private boolean cancelled;
+		private boolean lateResponsesMerged;
+
+		CompletionRequest(IDocument document, int offset) {
+			this.document = document;
+			this.offset = offset;
+			this.modificationStamp = getModificationStamp(document);
+			this.deadline = System.currentTimeMillis() + COMPLETION_TIMEOUT;
+		}
+
+		boolean matches(IDocument document, int offset) {
+			return !this.cancelled && this.document == document && this.offset == offset
+					&& this.modificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+					&& this.modificationStamp == getModificationStamp(document);
+		}
+
+		synchronized void addServerRequest(CompletableFuture<?> serverRequest) {
+			if (this.cancelled) {
+				serverRequest.cancel(true);
+			} else {
+				this.serverRequests.add(serverRequest);
+			}
+		}
+
+		/**
+		 * Cancels the requests which are still pending, which also notifies the
+		 * language servers about the cancellation.
+		 */
+		synchronized void cancel() {
+			this.cancelled = true;
+			this.serverRequests.forEach(request -> request.cancel(true));
+			this.responses.values().forEach(response -> response.cancel(true));
+		}
+
+		private static long getModificationStamp(IDocument document) {
+			return document instanceof IDocumentExtension4 ? ((IDocumentExtension4) document).getModificationStamp()
+					: IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		}
+	}
+
+	/**
+	 * Proposals of a complete completion list (ie not
+	 * {@link CompletionList#isIncomplete()}), which can be filtered locally
+	 * rather than requested again while identifier characters are typed right
+	 * after the offset the list was requested at. The list is discarded on any
+	 * other change of the document.
+	 */
+	private static final class CompleteCompletionList implements IDocumentListener {
+
+		private final IDocument document;
+		private final int offset;
+		private final List<LSCompletionProposal> proposals;
+		/** end of the characters typed since the list was requested */
+		private volatile int prefixEnd;
+		private volatile boolean valid = true;
+
+		CompleteCompletionList(IDocument document, int offset, List<LSCompletionProposal> proposals) {
+			this.document = document;
+			this.offset = offset;
+			this.prefixEnd = offset;
+			this.proposals = proposals;
+			document.addDocumentListener(this);
+		}
+
+		/**
+		 * @return the proposals of the list valid at the given offset, or
+		 *         <code>null</code> if the list can't be reused at this offset
+		 */
+		List<LSCompletionProposal> refilter(IDocument document, int offset) {
+			if (!this.valid || document != this.document || offset <= this.offset || offset > this.prefixEnd) {
+				return null;
+			}
+			try {
+				String typed = document.get(this.offset, offset - this.offset);
+				for (int i = 0; i < typed.length(); i++) {
+					if (!Character.isUnicodeIdentifierPart(typed.charAt(i))) {
+						return null;
+					}
+				}
+			} catch (BadLocationException e) {
+				return null;
+			}
+			List<LSCompletionProposal> res = new ArrayList<>();
+			TypedText typedText = new TypedText(document, offset);
+			for (LSCompletionProposal proposal : this.proposals) {
+				proposal.updateOffset(offset);
+				if (proposal.validate(typedText)) {
+					res.add(proposal);
+				}
+			}
+			return res;
+		}
+
+		void dispose() {
+			this.valid = false;
+			this.document.removeDocumentListener(this);
+		}
+
+		@Override
+		public void documentAboutToBeChanged(DocumentEvent event) {
+		}
+
+		@Override
+		public void documentChanged(DocumentEvent event) {
+			int textLength = event.getText() != null ? event.getText().length() : 0;
+			if (event.getLength() == 0 && textLength == 1 && event.getOffset() >= this.offset
+					&& event.getOffset() <= this.prefixEnd) {
+				// a character typed
+				this.prefixEnd++;
+			} else if (event.getLength() == 1 && textLength == 0 && event.getOffset() >= this.offset
+					&& event.getOffset() < this.prefixEnd) {
+				// a typed character deleted
+				this.prefixEnd--;
+			} else {
+				// includes application of a proposal, which may have modified it
+				dispose();
+			}
+		}
 	}
 
 	private CompletionProposal createErrorProposal(int offset, Exception ex) {
@@ -181,13 +618,10 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 		for (CompletionItem item : items) {
 			if (item != null) {
 				if (isIncomplete) {
-					ICompletionProposal proposal = new LSIncompleteCompletionProposal(item, offset, info);
+					ICompletionProposal proposal = new LSIncompleteCompletionProposal(item, offset, info, resolver);
 					proposals.add(proposal);
 				} else {
-					ICompletionProposal proposal = new LSCompletionProposal(item, offset, info);
-					if (((LSCompletionProposal) proposal).validate(info.getDocument(), offset, null)) {
-						proposals.add(proposal);
-					}
+					proposals.add(new LSCompletionProposal(item, offset, info, resolver));
 				}
 			}
 		}
@@ -219,62 +653,140 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 			return new IContextInformation[0];
 		}
 
+		IDocument document = viewer.getDocument();
+		int callSite = findCallSite(document, offset);
+		ContextInformationResult previousResult = this.contextInformationResult;
+		if (previousResult != null && previousResult.matches(document, callSite)) {
+			return previousResult.informations;
+		}
+		cancelSignatureHelpRequests();
 		List<IContextInformation> contextInformations = Collections.synchronizedList(new ArrayList<>());
+		boolean complete = true;
 		try {
 			TextDocumentPositionParams param = LSPEclipseUtils.toTextDocumentPosistionParams(
-					applicableInfos.get(0).getFileUri(), offset,
-					viewer.getDocument());
-			Stream<CompletableFuture<Void>> requests = applicableInfos.stream()
-					.map(info -> info.getInitializedLanguageClient().thenCompose(languageServer -> languageServer
-					.getTextDocumentService().signatureHelp(param).thenAccept(signatureHelp -> {
-				for (SignatureInformation information : signatureHelp.getSignatures()) {
-					StringBuilder signature = new StringBuilder(information.getLabel());
-					if (information.getDocumentation() != null && !information.getDocumentation().isEmpty()) {
-						signature.append('\n').append(information.getDocumentation());
-					}
-					contextInformations.add(new ContextInformation(information.getLabel(), signature.toString()));
-				}
-			})));
-			// wait for them to complete
-			requests.forEach(future -> {
+					applicableInfos.get(0).getFileUri(), offset, document);
+			List<CompletableFuture<Void>> requests = applicableInfos.stream()
+					.map(info -> {
+						// cancelling the result also cancels the request, even if not sent yet
+						CompletableFuture<SignatureHelp> request = info.sendRequest(Priority.INTERACTIVE,
+								SIGNATURE_HELP_METHOD, languageServer -> languageServer.getTextDocumentService().signatureHelp(param));
+						addSignatureHelpRequest(request);
+						return request;
+					}).map(request -> request.thenAccept(signatureHelp -> {
+						if (signatureHelp == null || signatureHelp.getSignatures() == null) {
+							return;
+						}
+						for (SignatureInformation information : signatureHelp.getSignatures()) {
+							StringBuilder signature = new StringBuilder(information.getLabel());
+							if (information.getDocumentation() != null && !information.getDocumentation().isEmpty()) {
+								signature.append('\n').append(information.getDocumentation());
+							}
+							contextInformations.add(new ContextInformation(information.getLabel(), signature.toString()));
+						}
+					})).collect(Collectors.toList());
+			// all servers share the same deadline, so a hung one doesn't freeze the UI
+			long deadline = System.currentTimeMillis() + COMPLETION_TIMEOUT;
+			for (CompletableFuture<Void> request : requests) {
 				try {
-					future.get(); // TODO? timeout?
-				} catch (ExecutionException | InterruptedException ex) {
+					request.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					complete = false;
+				} catch (ExecutionException | CancellationException ex) {
 					LanguageServerPlugin.logError(ex);
+					complete = false;
+				} catch (InterruptedException ex) {
+					LanguageServerPlugin.logError(ex);
+					Thread.currentThread().interrupt();
+					complete = false;
 				}
-			});
+			}
+			if (!complete) {
+				cancelSignatureHelpRequests();
+			}
 		} catch (BadLocationException e) {
 			LanguageServerPlugin.logError(e);
+			complete = false;
 		}
-		return contextInformations.toArray(new IContextInformation[0]);
+		IContextInformation[] res = contextInformations.toArray(new IContextInformation[0]);
+		this.contextInformationResult = complete && callSite >= 0 ? new ContextInformationResult(document, callSite, res) : null;
+		return res;
 	}
 
-	@Override
-	public char[] getCompletionProposalAutoActivationCharacters() {
-		ITextEditor textEditor = LSPEclipseUtils.getActiveTextEditor();
-		if(textEditor != null) {
-			checkInfoAndJob(LSPEclipseUtils.getDocument(textEditor));
-			try {
-				this.findInfoJob.getValue().join(TRIGGERS_TIMEOUT, new NullProgressMonitor());
-			} catch (InterruptedException | OperationCanceledException e) {
-				LanguageServerPlugin.logError(e);
+	private synchronized void addSignatureHelpRequest(CompletableFuture<SignatureHelp> request) {
+		this.signatureHelpRequests.removeIf(CompletableFuture::isDone);
+		this.signatureHelpRequests.add(request);
+	}
+
+	/**
+	 * Cancels the signature help requests still pending, which also notifies the
+	 * language servers about the cancellation, or prevents them from being sent.
+	 */
+	private synchronized void cancelSignatureHelpRequests() {
+		this.signatureHelpRequests.forEach(request -> request.cancel(true));
+		this.signatureHelpRequests.clear();
+	}
+
+	/**
+	 * @return the offset of the opening parenthesis of the argument list the
+	 *         offset is in, or -1 if none was found
+	 */
+	private static int findCallSite(IDocument document, int offset) {
+		try {
+			int depth = 0;
+			for (int i = offset - 1; i >= 0 && i >= offset - MAX_CALL_SITE_DISTANCE; i--) {
+				char c = document.getChar(i);
+				if (c == ')') {
+					depth++;
+				} else if (c == '(') {
+					if (depth == 0) {
+						return i;
+					}
+					depth--;
+				}
 			}
-			return triggerChars;
+		} catch (BadLocationException e) {
+			// no call site
 		}
-		return triggerChars;
+		return -1;
 	}
 
-	private Set<Character> collectCharacters(@Nullable List<String> triggerCharacters) {
-		if (triggerCharacters == null || triggerCharacters.isEmpty()) {
-			return Collections.emptySet();
+	/**
+	 * Context information computed for an argument list, which stays valid
+	 * while the caret moves in this argument list and the document isn't
+	 * modified.
+	 */
+	private static final class ContextInformationResult {
+
+		private final IDocument document;
+		private final long modificationStamp;
+		private final int callSite;
+		private final IContextInformation[] informations;
+
+		ContextInformationResult(IDocument document, int callSite, IContextInformation[] informations) {
+			this.document = document;
+			this.modificationStamp = CompletionRequest.getModificationStamp(document);
+			this.callSite = callSite;
+			this.informations = informations;
 		}
-		Set<Character> chars = new HashSet<>();
-		for (String s : triggerCharacters) {
-			if (s.length() == 1) {
-				chars.add(s.charAt(0));
-			}
+
+		boolean matches(IDocument document, int callSite) {
+			return this.document == document && this.callSite == callSite
+					&& this.modificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP
+					&& this.modificationStamp == CompletionRequest.getModificationStamp(document);
+		}
+	}
+
+	/**
+	 * Asked on every keystroke, so doesn't wait for language servers: no
+	 * characters are returned until they are found and initialized.
+	 */
+	@Override
+	public char[] getCompletionProposalAutoActivationCharacters() {
+		ITextEditor textEditor = LSPEclipseUtils.getActiveTextEditor();
+		if(textEditor != null) {
+			checkInfoAndJob(LSPEclipseUtils.getDocument(textEditor));
 		}
-		return chars;
+		return this.triggerChars.get(this.infos);
 	}
 
 	private void createInfoJob(@NonNull final IDocument document) {
@@ -284,24 +796,6 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 				infos = Collections.unmodifiableList(LanguageServiceAccessor.getLSPDocumentInfosFor(document,
 						capabilities -> capabilities.getCompletionProvider() != null
 								|| capabilities.getSignatureHelpProvider() != null));
-				Set<Character> triggerChars = new HashSet<>();
-				Set<Character> contextTriggerChars = new HashSet<>();
-				if (infos != null) {
-					infos.forEach(info -> {
-						ServerCapabilities currentCapabilites = info.getCapabilites();
-						if (currentCapabilites != null) {
-							if (currentCapabilites.getCompletionProvider() != null) {
-								triggerChars.addAll(collectCharacters(currentCapabilites.getCompletionProvider().getTriggerCharacters()));
-							}
-							if (currentCapabilites.getSignatureHelpProvider() != null) {
-								contextTriggerChars.addAll(collectCharacters(currentCapabilites.getSignatureHelpProvider().getTriggerCharacters()));
-							}
-						}
-					});
-				}
-				LSContentAssistProcessor.this.triggerChars = toArray(triggerChars);
-				LSContentAssistProcessor.this.contextTriggerChars = toArray(contextTriggerChars);
-
 				return Status.OK_STATUS;
 			}
 		};
@@ -312,18 +806,68 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 		this.findInfoJob = new Pair<IDocument, Job>(document, job);
 	}
 
+	/**
+	 * Asked on every keystroke, so doesn't wait for language servers: no
+	 * characters are returned until they are found and initialized.
+	 */
 	@Override
 	public char[] getContextInformationAutoActivationCharacters() {
 		ITextEditor textEditor = LSPEclipseUtils.getActiveTextEditor();
 		if(textEditor != null) {
 			checkInfoAndJob(LSPEclipseUtils.getDocument(textEditor));
-			try {
-				this.findInfoJob.getValue().join(TRIGGERS_TIMEOUT, new NullProgressMonitor());
-			} catch (InterruptedException | OperationCanceledException e) {
-				LanguageServerPlugin.logError(e);
+		}
+		return this.contextTriggerChars.get(this.infos);
+	}
+
+	/**
+	 * Trigger characters of all the language servers of the document, merged
+	 * again only when the ones of a language server changed (which is detected
+	 * by identity as they are replaced, not modified).
+	 */
+	private static final class TriggerCharacters {
+
+		private static final char[] NO_CHARACTERS = new char[0];
+
+		private final Function<LSPDocumentInfo, char[]> provider;
+		private List<LSPDocumentInfo> infos;
+		private char[][] serverCharacters = new char[0][];
+		private char[] characters = NO_CHARACTERS;
+
+		TriggerCharacters(Function<LSPDocumentInfo, char[]> provider) {
+			this.provider = provider;
+		}
+
+		synchronized char[] get(List<LSPDocumentInfo> infos) {
+			if (infos == null) {
+				return NO_CHARACTERS;
 			}
+			if (infos != this.infos || !isUpToDate()) {
+				this.infos = infos;
+				this.serverCharacters = new char[infos.size()][];
+				BitSet chars = new BitSet();
+				for (int i = 0; i < infos.size(); i++) {
+					this.serverCharacters[i] = this.provider.apply(infos.get(i));
+					for (char c : this.serverCharacters[i]) {
+						chars.set(c);
+					}
+				}
+				this.characters = new char[chars.cardinality()];
+				int i = 0;
+				for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
+					this.characters[i++] = (char) c;
+				}
+			}
+			return this.characters;
+		}
+
+		private boolean isUpToDate() {
+			for (int i = 0; i < this.serverCharacters.length; i++) {
+				if (this.provider.apply(this.infos.get(i)) != this.serverCharacters[i]) {
+					return false;
+				}
+			}
+			return true;
 		}
-		return contextTriggerChars;
 	}
 
 	@Override
@@ -336,13 +880,4 @@ public class LSContentAssistProcessor implements IContentAssistProcessor {
 		return new ContextInformationValidator(this);
 	}
 
-	private char[] toArray(Collection<Character> items) {
-		char[] res = new char[items.size()];
-		int i = 0;
-		for (Character item : items) {
-			res[i] = item.charValue();
-			i++;
-		}
-		return res;
-	}
 }
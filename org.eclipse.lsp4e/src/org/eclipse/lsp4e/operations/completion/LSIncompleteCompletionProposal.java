@@ -16,6 +16,8 @@ package org.eclipse.lsp4e.operations.completion;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -49,11 +51,9 @@ import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
 import org.eclipse.lsp4e.ui.LSPImages;
 import org.eclipse.lsp4j.CompletionItem;
-import org.eclipse.lsp4j.CompletionOptions;
 import org.eclipse.lsp4j.InsertTextFormat;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
-import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
@@ -74,10 +74,17 @@ public class LSIncompleteCompletionProposal
 	private IRegion selection;
 	private LinkedPosition firstPosition;
 	private LSPDocumentInfo info;
+	private final CompletionItemResolver resolver;
 
 	public LSIncompleteCompletionProposal(@NonNull CompletionItem item, int offset, LSPDocumentInfo info) {
+		this(item, offset, info, new CompletionItemResolver());
+	}
+
+	LSIncompleteCompletionProposal(@NonNull CompletionItem item, int offset, LSPDocumentInfo info,
+			@NonNull CompletionItemResolver resolver) {
 		this.item = item;
 		this.info = info;
+		this.resolver = resolver;
 		this.initialOffset = offset;
 		this.bestOffset = getPrefixCompletionStart(info.getDocument(), offset);
 	}
@@ -153,17 +160,20 @@ public class LSIncompleteCompletionProposal
 
 	@Override
 	public Object getAdditionalProposalInfo(IProgressMonitor monitor) {
-		ServerCapabilities capabilities = info.getCapabilites();
-		if (capabilities != null) {
-			CompletionOptions options = capabilities.getCompletionProvider();
-			if (options != null && Boolean.TRUE.equals(options.getResolveProvider())) {
-				try {
-					updateCompletionItem(info.getInitializedLanguageClient()
-							.thenCompose(ls -> ls.getTextDocumentService().resolveCompletionItem(item))
-							.get(500, TimeUnit.MILLISECONDS));
-				} catch (InterruptedException | ExecutionException | TimeoutException e) {
-					LanguageServerPlugin.logError(e);
+		CompletableFuture<CompletionItem> resolvedItem = resolveItem();
+		if (resolvedItem != null) {
+			try {
+				updateCompletionItem(resolvedItem.get(500, TimeUnit.MILLISECONDS));
+			} catch (CancellationException e) {
+				// popup dismissed meanwhile
+				return null;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof CancellationException) {
+					return null;
 				}
+				LanguageServerPlugin.logError(e);
+			} catch (InterruptedException | TimeoutException e) {
+				LanguageServerPlugin.logError(e);
 			}
 		}
 
@@ -181,6 +191,19 @@ public class LSIncompleteCompletionProposal
 		return res.toString();
 	}
 
+	/**
+	 * Requests the language server to resolve the item, if it supports it.
+	 * The request is shared with other proposals of the same content assist
+	 * session, so calling it ahead of {@link #getAdditionalProposalInfo(IProgressMonitor)}
+	 * makes the later one return without waiting.
+	 *
+	 * @return the resolved item, or <code>null</code> if the language server
+	 *         doesn't resolve completion items
+	 */
+	CompletableFuture<CompletionItem> resolveItem() {
+		return this.resolver.resolve(this.info, this.item);
+	}
+
 	private void updateCompletionItem(CompletionItem resolvedItem) {
 		if (resolvedItem == null) {
 			return;
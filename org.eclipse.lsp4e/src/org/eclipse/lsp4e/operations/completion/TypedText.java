@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e.operations.completion;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+
+/**
+ * Text of a document before the offset completion proposals are validated at.
+ * Proposals of a list mostly start at the same offset, so the text is only
+ * read again from the document when the start offset changes.
+ */
+final class TypedText {
+
+	final IDocument document;
+	final int offset;
+	private int start = -1;
+	private String text;
+
+	TypedText(IDocument document, int offset) {
+		this.document = document;
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the text between the given start offset and the offset
+	 */
+	String from(int start) throws BadLocationException {
+		if (start != this.start || this.text == null) {
+			this.text = this.document.get(start, this.offset - start);
+			this.start = start;
+		}
+		return this.text;
+	}
+
+}
@@ -13,7 +13,6 @@
 package org.eclipse.lsp4e.operations.declaration;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -32,13 +31,17 @@ import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4e.ui.Messages;
 import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.PlatformUI;
 
 public class OpenDeclarationHyperlinkDetector extends AbstractHyperlinkDetector {
 
+	private static final String DEFINITION_METHOD = "textDocument/definition"; //$NON-NLS-1$
+
 	public static class LSBasedHyperlink implements IHyperlink {
 
 		private Location location;
@@ -74,21 +77,32 @@ public class OpenDeclarationHyperlinkDetector extends AbstractHyperlinkDetector
 
 	@Override
 	public IHyperlink[] detectHyperlinks(ITextViewer textViewer, IRegion region, boolean canShowMultipleHyperlinks) {
-		for (@NonNull LSPDocumentInfo info : LanguageServiceAccessor.getLSPDocumentInfosFor(textViewer.getDocument(), capabilities -> Boolean.TRUE.equals(capabilities.getDefinitionProvider()))) {
+		List<@NonNull LSPDocumentInfo> infos;
+		try {
+			// hyperlink detection is synchronous, so wait for the language servers to be found
+			infos = LanguageServiceAccessor.getInitializedLSPDocumentInfos(textViewer.getDocument(),
+					capabilities -> Boolean.TRUE.equals(capabilities.getDefinitionProvider())).get(2, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			// language servers still starting, no links yet
+			return null;
+		} catch (InterruptedException | ExecutionException e) {
+			LanguageServerPlugin.logError(e);
+			return null;
+		}
+		for (@NonNull LSPDocumentInfo info : infos) {
+			TextDocumentPositionParams params;
 			try {
-				CompletableFuture<List<? extends Location>> documentHighlight = info.getInitializedLanguageClient().thenCompose(ls ->
-						{
-							try {
-								return ls.getTextDocumentService()
-										.definition(LSPEclipseUtils.toTextDocumentPosistionParams(info.getFileUri(),
-												region.getOffset(), info.getDocument()));
-							} catch (BadLocationException e) {
-								LanguageServerPlugin.logError(e);
-								return CompletableFuture.completedFuture(Collections.emptyList());
-							}
-						}
-				);
-				List<? extends Location> locations = documentHighlight.get(2, TimeUnit.SECONDS);
+				params = LSPEclipseUtils.toTextDocumentPosistionParams(info.getFileUri(), region.getOffset(),
+						info.getDocument());
+			} catch (BadLocationException e) {
+				LanguageServerPlugin.logError(e);
+				continue;
+			}
+			CompletableFuture<List<? extends Location>> definition = null;
+			try {
+				definition = info.sendRequest(Priority.INTERACTIVE, DEFINITION_METHOD, params,
+						ls -> ls.getTextDocumentService().definition(params));
+				List<? extends Location> locations = definition.get(2, TimeUnit.SECONDS);
 				if (locations == null || locations.isEmpty()) {
 					continue;
 				}
@@ -102,6 +116,9 @@ public class OpenDeclarationHyperlinkDetector extends AbstractHyperlinkDetector
 				}
 				return hyperlinks.toArray(new IHyperlink[hyperlinks.size()]);
 			} catch (InterruptedException | ExecutionException | TimeoutException e) {
+				if (definition != null) {
+					definition.cancel(true);
+				}
 				LanguageServerPlugin.logError(e);
 			}
 		}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Red Hat Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Red Hat Inc. - initial implementation
+ *******************************************************************************/
+package org.eclipse.lsp4e.operations.diagnostics;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.lsp4j.Position;
+
+/**
+ * Line start offsets of a file which isn't opened in a buffer, computed by
+ * streaming its content, so positions of diagnostics can be converted to
+ * offsets without loading the file in a document. Line delimiters and offsets
+ * (UTF-16 code units, without byte order mark) match the ones of the document
+ * the file would be loaded into.
+ */
+final class FileLineTable {
+
+	private static final int CACHE_SIZE = 16;
+
+	private static final Map<IFile, FileLineTable> CACHE = new LinkedHashMap<IFile, FileLineTable>(CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<IFile, FileLineTable> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final long modificationStamp;
+	private final int[] lineStarts;
+	private final int length;
+
+	private FileLineTable(long modificationStamp, int[] lineStarts, int length) {
+		this.modificationStamp = modificationStamp;
+		this.lineStarts = lineStarts;
+		this.length = length;
+	}
+
+	/**
+	 * @return the line table of the current content of the file, from a small
+	 *         cache if the file didn't change since it was last computed.
+	 */
+	static @NonNull FileLineTable get(@NonNull IFile file) throws CoreException, IOException {
+		long modificationStamp = file.getModificationStamp();
+		synchronized (CACHE) {
+			FileLineTable table = CACHE.get(file);
+			if (table != null && table.modificationStamp == modificationStamp) {
+				return table;
+			}
+		}
+		FileLineTable table = compute(file, modificationStamp);
+		synchronized (CACHE) {
+			CACHE.put(file, table);
+		}
+		return table;
+	}
+
+	private static FileLineTable compute(IFile file, long modificationStamp) throws CoreException, IOException {
+		int[] lineStarts = new int[64];
+		int lines = 1;
+		int offset = 0;
+		boolean afterCarriageReturn = false;
+		boolean first = true;
+		try (Reader reader = new InputStreamReader(file.getContents(true), file.getCharset())) {
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					char c = buffer[i];
+					if (first) {
+						first = false;
+						if (c == '\uFEFF') {
+							// byte order mark isn't part of the document
+							continue;
+						}
+					}
+					offset++;
+					if (c == '\n' && afterCarriageReturn) {
+						// "\r\n" is a single delimiter
+						lineStarts[lines - 1] = offset;
+					} else if (c == '\n' || c == '\r') {
+						if (lines == lineStarts.length) {
+							lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+						}
+						lineStarts[lines++] = offset;
+					}
+					afterCarriageReturn = c == '\r';
+				}
+			}
+		}
+		return new FileLineTable(modificationStamp, Arrays.copyOf(lineStarts, lines), offset);
+	}
+
+	int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * @return the offset of the position, lines after the end of the file
+	 *         being mapped to the end of the file.
+	 */
+	int toOffset(Position position) {
+		if (position.getLine() >= this.lineStarts.length) {
+			return this.length;
+		}
+		return this.lineStarts[Math.max(0, position.getLine())] + position.getCharacter();
+	}
+
+	int getLineOfOffset(int offset) {
+		int index = Arrays.binarySearch(this.lineStarts, offset);
+		return index >= 0 ? index : Math.max(0, -index - 2);
+	}
+
+}
@@ -10,30 +10,39 @@
  *******************************************************************************/
 package org.eclipse.lsp4e.operations.diagnostics;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
-import org.eclipse.core.filebuffers.ITextFileBufferManager;
 import org.eclipse.core.filebuffers.LocationKind;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
-import org.eclipse.ui.texteditor.MarkerUtilities;
+import org.eclipse.lsp4j.Range;
 
 public class LSPDiagnosticsToMarkers implements Consumer<PublishDiagnosticsParams> {
 
@@ -41,6 +50,7 @@ public class LSPDiagnosticsToMarkers implements Consumer<PublishDiagnosticsParam
 	public static final String LANGUAGE_SERVER_ID = "languageServerId"; //$NON-NLS-1$
 	public static final String LS_DIAGNOSTIC_MARKER_TYPE = "org.eclipse.lsp4e.diagnostic"; //$NON-NLS-1$
 	private final @NonNull String languageServerId;
+	private final Map<IResource, PublishDiagnosticsParams> pendingDiagnostics = new ConcurrentHashMap<>();
 
 	public LSPDiagnosticsToMarkers(@NonNull String serverId) {
 		this.languageServerId = serverId;
@@ -58,28 +68,68 @@ public class LSPDiagnosticsToMarkers implements Consumer<PublishDiagnosticsParam
 		this(serverId);
 	}
 
+	/**
+	 * Schedules the update of the markers of the resource for the given
+	 * diagnostics. Updates are applied in a workspace job, so that all the
+	 * marker changes of a publication result in a single resource delta; if
+	 * the job didn't run yet when newer diagnostics are published for the same
+	 * resource, only the newest ones are applied.
+	 */
 	@Override
 	public void accept(PublishDiagnosticsParams diagnostics) {
+		// fix issue with file:/// vs file:/
+		String uri = diagnostics.getUri();
+		IResource resource = LSPEclipseUtils.findResourceFor(uri);
+		if (resource == null || !resource.exists()) {
+			return;
+		}
+		if (this.pendingDiagnostics.put(resource, diagnostics) == null) {
+			WorkspaceJob job = new WorkspaceJob("Update diagnostic markers of " + resource.getName()) { //$NON-NLS-1$
+				@Override
+				public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+					PublishDiagnosticsParams latestDiagnostics = pendingDiagnostics.remove(resource);
+					if (latestDiagnostics != null && resource.exists()) {
+						updateMarkers(resource, latestDiagnostics);
+					}
+					return Status.OK_STATUS;
+				}
+
+				@Override
+				public boolean belongsTo(Object family) {
+					return family == LSPDiagnosticsToMarkers.this;
+				}
+			};
+			job.setSystem(true);
+			job.setRule(resource);
+			job.schedule();
+		}
+	}
+
+	private void updateMarkers(IResource resource, PublishDiagnosticsParams diagnostics) {
 		try {
-			// fix issue with file:/// vs file:/
-			String uri = diagnostics.getUri();
-			IResource resource = LSPEclipseUtils.findResourceFor(uri);
-			if (resource == null || !resource.exists()) {
-				return;
+			Map<DiagnosticKey, Deque<IMarker>> existingMarkers = new HashMap<>();
+			List<IMarker> remainingMarkers = new ArrayList<>();
+			for (IMarker marker : resource.findMarkers(LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ONE)) {
+				if (!Objects.equals(marker.getAttribute(LANGUAGE_SERVER_ID, ""), languageServerId)) { //$NON-NLS-1$
+					continue;
+				}
+				Object diagnostic = marker.getAttribute(LSP_DIAGNOSTIC);
+				if (diagnostic instanceof Diagnostic) {
+					existingMarkers.computeIfAbsent(new DiagnosticKey(languageServerId, (Diagnostic) diagnostic),
+							key -> new ArrayDeque<>()).add(marker);
+				} else {
+					remainingMarkers.add(marker);
+				}
 			}
-			Set<IMarker> remainingMarkers = new HashSet<>(
-					Arrays.asList(resource.findMarkers(LS_DIAGNOSTIC_MARKER_TYPE, false, IResource.DEPTH_ONE)));
-			remainingMarkers
-					.removeIf(marker -> !Objects.equals(marker.getAttribute(LANGUAGE_SERVER_ID, ""), languageServerId)); //$NON-NLS-1$
 			for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
-				IMarker associatedMarker = getExistingMarkerFor(resource, diagnostic, remainingMarkers);
+				Deque<IMarker> candidates = existingMarkers.get(new DiagnosticKey(languageServerId, diagnostic));
+				IMarker associatedMarker = candidates != null ? candidates.poll() : null;
 				if (associatedMarker == null) {
 					associatedMarker = resource.createMarker(LS_DIAGNOSTIC_MARKER_TYPE);
-				} else {
-					remainingMarkers.remove(associatedMarker);
 				}
 				updateMarker(resource, diagnostic, associatedMarker);
 			}
+			existingMarkers.values().forEach(remainingMarkers::addAll);
 			for (IMarker marker : remainingMarkers) {
 				marker.delete();
 			}
@@ -90,59 +140,93 @@ public class LSPDiagnosticsToMarkers implements Consumer<PublishDiagnosticsParam
 
 	protected void updateMarker(IResource resource, Diagnostic diagnostic, IMarker marker) {
 		try {
-			marker.setAttribute(LSP_DIAGNOSTIC, diagnostic);
-			marker.setAttribute(LANGUAGE_SERVER_ID, this.languageServerId);
-			marker.setAttribute(IMarker.MESSAGE, diagnostic.getMessage());
-			marker.setAttribute(IMarker.SEVERITY, LSPEclipseUtils.toEclipseMarkerSeverity(diagnostic.getSeverity()));
-			if (resource.getType() != IResource.FILE) {
-				return;
+			List<String> names = new ArrayList<>(7);
+			List<Object> values = new ArrayList<>(7);
+			names.add(LSP_DIAGNOSTIC);
+			values.add(diagnostic);
+			names.add(LANGUAGE_SERVER_ID);
+			values.add(this.languageServerId);
+			names.add(IMarker.MESSAGE);
+			values.add(diagnostic.getMessage());
+			names.add(IMarker.SEVERITY);
+			values.add(LSPEclipseUtils.toEclipseMarkerSeverity(diagnostic.getSeverity()));
+			if (resource.getType() == IResource.FILE) {
+				IFile file = (IFile) resource;
+				ITextFileBuffer textFileBuffer = FileBuffers.getTextFileBufferManager()
+						.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+				int start;
+				int end;
+				int line;
+				if (textFileBuffer != null) {
+					IDocument document = textFileBuffer.getDocument();
+					start = Math.min(LSPEclipseUtils.toOffset(diagnostic.getRange().getStart(), document),
+							document.getLength());
+					end = Math.min(LSPEclipseUtils.toOffset(diagnostic.getRange().getEnd(), document),
+							document.getLength());
+					line = document.getLineOfOffset(start);
+				} else {
+					// don't load the file in a buffer only to compute offsets
+					FileLineTable lines = FileLineTable.get(file);
+					start = Math.min(lines.toOffset(diagnostic.getRange().getStart()), lines.getLength());
+					end = Math.min(lines.toOffset(diagnostic.getRange().getEnd()), lines.getLength());
+					line = lines.getLineOfOffset(start);
+				}
+				names.add(IMarker.CHAR_START);
+				values.add(start);
+				names.add(IMarker.CHAR_END);
+				values.add(end);
+				names.add(IMarker.LINE_NUMBER);
+				values.add(line + 1);
 			}
-			IFile file = (IFile) resource;
-			ITextFileBufferManager manager = FileBuffers.getTextFileBufferManager();
-			ITextFileBuffer textFileBuffer = manager.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
-
-			if (textFileBuffer == null) {
-				manager.connect(file.getFullPath(), LocationKind.IFILE, new NullProgressMonitor());
-				textFileBuffer = manager.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+			String[] attributeNames = names.toArray(new String[names.size()]);
+			Object[] attributeValues = values.toArray();
+			if (!Arrays.equals(marker.getAttributes(attributeNames), attributeValues)) {
+				marker.setAttributes(attributeNames, attributeValues);
 			}
-
-			IDocument document = textFileBuffer.getDocument();
-			int start = Math.min(LSPEclipseUtils.toOffset(diagnostic.getRange().getStart(), document),
-					document.getLength());
-			int end = Math.min(LSPEclipseUtils.toOffset(diagnostic.getRange().getEnd(), document),
-					document.getLength());
-
-			marker.setAttribute(IMarker.CHAR_START, start);
-			marker.setAttribute(IMarker.CHAR_END, end);
-			marker.setAttribute(IMarker.LINE_NUMBER, document.getLineOfOffset(start) + 1);
-		} catch (CoreException | BadLocationException e) {
+		} catch (CoreException | BadLocationException | IOException e) {
 			LanguageServerPlugin.logError(e);
 		}
 	}
 
-	private IMarker getExistingMarkerFor(IResource resource, Diagnostic diagnostic, Set<IMarker> remainingMarkers) {
-		ITextFileBuffer textFileBuffer = FileBuffers.getTextFileBufferManager()
-				.getTextFileBuffer(resource.getFullPath(), LocationKind.IFILE);
-		if (textFileBuffer == null) {
-			return null;
+	/**
+	 * Identifies the diagnostic a marker was created for, regardless of the
+	 * offsets it was resolved to in the document.
+	 */
+	private static final class DiagnosticKey {
+
+		private final String languageServerId;
+		private final Range range;
+		private final String message;
+		private final DiagnosticSeverity severity;
+		private final Object code;
+
+		DiagnosticKey(String languageServerId, Diagnostic diagnostic) {
+			this.languageServerId = languageServerId;
+			this.range = diagnostic.getRange();
+			this.message = diagnostic.getMessage();
+			this.severity = diagnostic.getSeverity();
+			this.code = diagnostic.getCode();
 		}
 
-		IDocument document = textFileBuffer.getDocument();
-		for (IMarker marker : remainingMarkers) {
-			int startOffset = MarkerUtilities.getCharStart(marker);
-			int endOffset = MarkerUtilities.getCharEnd(marker);
-			try {
-				if (marker.getResource().getProjectRelativePath().toString().equals(diagnostic.getSource())
-						&& LSPEclipseUtils.toOffset(diagnostic.getRange().getStart(), document) == startOffset + 1
-						&& LSPEclipseUtils.toOffset(diagnostic.getRange().getEnd(), document) == endOffset + 1
-						&& Objects.equals(marker.getAttribute(IMarker.MESSAGE), diagnostic.getMessage())
-						&& Objects.equals(marker.getAttribute(LANGUAGE_SERVER_ID), this.languageServerId)) {
-					return marker;
-				}
-			} catch (CoreException | BadLocationException e) {
-				LanguageServerPlugin.logError(e);
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
 			}
+			if (!(obj instanceof DiagnosticKey)) {
+				return false;
+			}
+			DiagnosticKey other = (DiagnosticKey) obj;
+			return Objects.equals(this.languageServerId, other.languageServerId)
+					&& Objects.equals(this.range, other.range)
+					&& Objects.equals(this.message, other.message)
+					&& this.severity == other.severity
+					&& Objects.equals(this.code, other.code);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.languageServerId, this.range, this.message, this.severity, this.code);
 		}
-		return null;
 	}
-}
\ No newline at end of file
+}
@@ -31,6 +31,7 @@ import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4j.DocumentLink;
 import org.eclipse.lsp4j.DocumentLinkParams;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
@@ -41,6 +42,8 @@ import org.eclipse.ui.ide.IDE;
 
 public class DocumentLinkDetector extends AbstractHyperlinkDetector {
 
+	private static final String DOCUMENT_LINK_METHOD = "textDocument/documentLink"; //$NON-NLS-1$
+
 	public static class DocumentHyperlink implements IHyperlink {
 
 		private String uri;
@@ -83,12 +86,25 @@ public class DocumentLinkDetector extends AbstractHyperlinkDetector {
 
 	@Override
 	public IHyperlink[] detectHyperlinks(ITextViewer textViewer, IRegion region, boolean canShowMultipleHyperlinks) {
-		for (@NonNull LSPDocumentInfo info : LanguageServiceAccessor.getLSPDocumentInfosFor(textViewer.getDocument(), capabilities -> capabilities.getDocumentLinkProvider() != null)) {
+		List<@NonNull LSPDocumentInfo> infos;
+		try {
+			// hyperlink detection is synchronous, so wait for the language servers to be found
+			infos = LanguageServiceAccessor.getInitializedLSPDocumentInfos(textViewer.getDocument(),
+					capabilities -> capabilities.getDocumentLinkProvider() != null).get(2, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			// language servers still starting, no links yet
+			return null;
+		} catch (InterruptedException | ExecutionException e) {
+			LanguageServerPlugin.logError(e);
+			return null;
+		}
+		for (@NonNull LSPDocumentInfo info : infos) {
+			CompletableFuture<List<DocumentLink>> documentLink = null;
 			try {
 				DocumentLinkParams params = new DocumentLinkParams(
 						new TextDocumentIdentifier(info.getFileUri().toString()));
-				CompletableFuture<List<DocumentLink>> documentLink = info.getInitializedLanguageClient()
-						.thenCompose(languageServer -> languageServer.getTextDocumentService().documentLink(params));
+				documentLink = info.sendCachedRequest(Priority.INTERACTIVE, DOCUMENT_LINK_METHOD, params,
+						languageServer -> languageServer.getTextDocumentService().documentLink(params));
 				List<DocumentLink> links = documentLink.get(2, TimeUnit.SECONDS);
 				if (links == null || links.isEmpty()) {
 					continue;
@@ -110,6 +126,9 @@ public class DocumentLinkDetector extends AbstractHyperlinkDetector {
 				}
 				return hyperlinks.toArray(new IHyperlink[hyperlinks.size()]);
 			} catch (BadLocationException | InterruptedException | ExecutionException | TimeoutException e) {
+				if (documentLink != null) {
+					documentLink.cancel(true);
+				}
 				LanguageServerPlugin.logError(e);
 			}
 		}
@@ -40,6 +40,7 @@ import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4j.DocumentHighlight;
 import org.eclipse.lsp4j.DocumentHighlightKind;
 import org.eclipse.lsp4j.Position;
@@ -56,6 +57,8 @@ import org.eclipse.swt.custom.StyledText;
 public class HighlightReconcilingStrategy
 		implements IReconcilingStrategy, IReconcilingStrategyExtension, CaretListener, IPreferenceChangeListener {
 
+	private static final String DOCUMENT_HIGHLIGHT_METHOD = "textDocument/documentHighlight"; //$NON-NLS-1$
+
 	public static final String TOGGLE_HIGHLIGHT_PREFERENCE = "org.eclipse.ui.genericeditor.togglehighlight"; //$NON-NLS-1$
 
 	public static final String READ_ANNOTATION_TYPE = "org.eclipse.lsp4e.read"; //$NON-NLS-1$
@@ -66,8 +69,10 @@ public class HighlightReconcilingStrategy
 	private ISourceViewer sourceViewer;
 	private IDocument document;
 
-	private CompletableFuture<List<? extends DocumentHighlight>> request;
-	private List<LSPDocumentInfo> infos;
+	/** last request, written by the thread sending it and cancelled from the UI thread */
+	private volatile CompletableFuture<List<? extends DocumentHighlight>> request;
+	/** offset highlights were last requested for */
+	private volatile int requestedOffset = -1;
 
 	/**
 	 * Holds the current occurrence annotations.
@@ -133,38 +138,52 @@ public class HighlightReconcilingStrategy
 		if (sourceViewer == null || !enabled) {
 			return;
 		}
-		if (infos == null) {
-			infos = LanguageServiceAccessor.getLSPDocumentInfosFor(document,
-					capabilities -> Boolean.TRUE.equals(capabilities.getDocumentHighlightProvider()));
-		}
-		if (infos.isEmpty()) {
-			// The language server has not the highlight capability.
-			return;
-		}
+		// set first, so that a request being sent sees it's outdated if it misses the cancellation
+		requestedOffset = caretOffset;
 		// Cancel the last call of 'documentHighlight'.
 		cancel();
+		Position position;
 		try {
-			Position position = LSPEclipseUtils.toPosition(caretOffset, document);
-			for (LSPDocumentInfo info : infos) {
-				TextDocumentIdentifier identifier = new TextDocumentIdentifier(info.getFileUri().toString());
-				TextDocumentPositionParams params = new TextDocumentPositionParams(identifier, position);
-				request = info.getInitializedLanguageClient().thenCompose(
-						languageServer -> languageServer.getTextDocumentService().documentHighlight(params));
-				request.thenAccept(result -> {
-					updateAnnotations(result, sourceViewer.getAnnotationModel());
-				});
-			}
+			position = LSPEclipseUtils.toPosition(caretOffset, document);
 		} catch (BadLocationException e) {
 			LanguageServerPlugin.logError(e);
+			return;
 		}
+		LanguageServiceAccessor.getInitializedLSPDocumentInfos(document,
+				capabilities -> Boolean.TRUE.equals(capabilities.getDocumentHighlightProvider()))
+				.thenAccept(infos -> {
+					if (caretOffset != requestedOffset) {
+						// caret moved while language servers were looked for
+						return;
+					}
+					for (LSPDocumentInfo info : infos) {
+						TextDocumentIdentifier identifier = new TextDocumentIdentifier(info.getFileUri().toString());
+						TextDocumentPositionParams params = new TextDocumentPositionParams(identifier, position);
+						CompletableFuture<List<? extends DocumentHighlight>> highlights = info.sendCachedRequest(
+								Priority.VISIBLE, DOCUMENT_HIGHLIGHT_METHOD, params,
+								languageServer -> languageServer.getTextDocumentService().documentHighlight(params));
+						request = highlights;
+						if (caretOffset != requestedOffset) {
+							// caret moved while sending, the request may have missed its cancellation
+							highlights.cancel(true);
+							return;
+						}
+						highlights.thenAccept(result -> {
+							if (caretOffset == requestedOffset) {
+								updateAnnotations(result, sourceViewer.getAnnotationModel());
+							}
+						});
+					}
+				});
 	}
 
 	/**
 	 * Cancel the last call of 'documentHighlight'.
 	 */
 	private void cancel() {
-		if (request != null && !request.isDone()) {
-			request.cancel(true);
+		CompletableFuture<List<? extends DocumentHighlight>> lastRequest = request;
+		if (lastRequest != null && !lastRequest.isDone()) {
+			lastRequest.cancel(true);
 			request = null;
 		}
 	}
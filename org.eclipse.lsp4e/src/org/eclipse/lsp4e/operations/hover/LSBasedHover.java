@@ -46,6 +46,7 @@ import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4j.CodeLens;
 import org.eclipse.lsp4j.CodeLensParams;
 import org.eclipse.lsp4j.Command;
@@ -54,6 +55,7 @@ import org.eclipse.lsp4j.MarkedString;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.mylyn.wikitext.markdown.MarkdownLanguage;
 import org.eclipse.mylyn.wikitext.parser.MarkupParser;
@@ -72,6 +74,9 @@ import org.eclipse.ui.editors.text.EditorsUI;
  */
 public class LSBasedHover implements ITextHover, ITextHoverExtension {
 
+	private static final String HOVER_METHOD = "textDocument/hover"; //$NON-NLS-1$
+	private static final String CODE_LENS_METHOD = "textDocument/codeLens"; //$NON-NLS-1$
+
 	private static final MarkupParser MARKDOWN_PARSER = new MarkupParser(new MarkdownLanguage());
 
 	private static final LocationListener HYPER_LINK_LISTENER = new LocationListener() {
@@ -306,15 +311,16 @@ public class LSBasedHover implements ITextHover, ITextHoverExtension {
 		final List<Hover> hoverResults = Collections.synchronizedList(new ArrayList<>(docInfos.size()));
 		for (@NonNull
 		final LSPDocumentInfo info : docInfos) {
-			info.getInitializedLanguageClient().thenAccept(languageServer -> {
-				try {
-					CompletableFuture<Hover> hover = languageServer.getTextDocumentService().hover(LSPEclipseUtils
-							.toTextDocumentPosistionParams(info.getFileUri(), offset, info.getDocument()));
-					requests.add(hover.thenAccept(hoverResults::add));
-				} catch (BadLocationException e) {
-					LanguageServerPlugin.logError(e);
-				}
-			});
+			try {
+				TextDocumentPositionParams params = LSPEclipseUtils.toTextDocumentPosistionParams(info.getFileUri(),
+						offset, info.getDocument());
+				// shared with the identical request sent when asked for both the hover region and info
+				requests.add(info.sendRequest(Priority.INTERACTIVE, HOVER_METHOD, params,
+						languageServer -> languageServer.getTextDocumentService().hover(params))
+						.thenAccept(hoverResults::add));
+			} catch (BadLocationException e) {
+				LanguageServerPlugin.logError(e);
+			}
 		}
 		return hoverResults;
 	}
@@ -337,8 +343,8 @@ public class LSBasedHover implements ITextHover, ITextHoverExtension {
 		for (@NonNull
 		final LSPDocumentInfo info : docInfos) {
 			CodeLensParams param = new CodeLensParams(new TextDocumentIdentifier(info.getFileUri().toString()));
-			requests.add(info.getInitializedLanguageClient()
-					.thenCompose(languageServer -> languageServer.getTextDocumentService().codeLens(param))
+			requests.add(info.sendCachedRequest(Priority.INTERACTIVE, CODE_LENS_METHOD, param,
+					languageServer -> languageServer.getTextDocumentService().codeLens(param))
 					.thenAccept(codeLenses -> {
 						for (CodeLens codeLens : codeLenses) {
 							if (codeLens == null)
@@ -11,6 +11,7 @@
  */
 package org.eclipse.lsp4e.operations.rename;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.Assert;
@@ -22,6 +23,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4e.ui.Messages;
 import org.eclipse.lsp4j.RenameParams;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
@@ -83,6 +85,7 @@ public class LSPRenameProcessor extends RefactoringProcessor {
 	public RefactoringStatus checkFinalConditions(IProgressMonitor pm, CheckConditionsContext context)
 			throws CoreException, OperationCanceledException {
 		RefactoringStatus status = new RefactoringStatus();
+		CompletableFuture<WorkspaceEdit> request = null;
 		try {
 			RenameParams params = new RenameParams();
 			params.setPosition(LSPEclipseUtils.toPosition(offset, info.getDocument()));
@@ -92,11 +95,14 @@ public class LSPRenameProcessor extends RefactoringProcessor {
 			params.setNewName(newName);
 			if (params.getNewName() != null) {
 				// TODO: how to manage ltk with CompletableFuture? Is 1000 ms is enough?
-				rename = info.getInitializedLanguageClient()
-						.thenCompose(langaugeServer -> langaugeServer.getTextDocumentService().rename(params))
-						.get(1000, TimeUnit.MILLISECONDS);
+				request = info.sendRequest(Priority.INTERACTIVE, null,
+						langaugeServer -> langaugeServer.getTextDocumentService().rename(params));
+				rename = request.get(1000, TimeUnit.MILLISECONDS);
 			}
 		} catch (Exception e) {
+			if (request != null) {
+				request.cancel(true);
+			}
 			status.addError(e.getMessage());
 		}
 		return status;
@@ -20,6 +20,7 @@ import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServiceAccessor;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4j.DocumentSymbolParams;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.swt.widgets.Shell;
@@ -31,6 +32,8 @@ import org.eclipse.ui.texteditor.ITextEditor;
 
 public class LSPSymbolInFileHandler extends AbstractHandler {
 
+	private static final String DOCUMENT_SYMBOL_METHOD = "textDocument/documentSymbol"; //$NON-NLS-1$
+
 	@Override
 	public Object execute(ExecutionEvent event) throws ExecutionException {
 		IEditorPart part = HandlerUtil.getActiveEditor(event);
@@ -47,8 +50,8 @@ public class LSPSymbolInFileHandler extends AbstractHandler {
 			final Shell shell = HandlerUtil.getActiveShell(event);
 			DocumentSymbolParams params = new DocumentSymbolParams(
 					new TextDocumentIdentifier(info.getFileUri().toString()));
-			info.getInitializedLanguageClient()
-					.thenCompose(langaugeServer -> langaugeServer.getTextDocumentService().documentSymbol(params))
+			info.sendCachedRequest(Priority.INTERACTIVE, DOCUMENT_SYMBOL_METHOD, params,
+					languageServer -> languageServer.getTextDocumentService().documentSymbol(params))
 					.thenAccept(t -> {
 						shell.getDisplay().asyncExec(() -> {
 							LSPSymbolInFileDialog dialog = new LSPSymbolInFileDialog(shell, textEditor, t);
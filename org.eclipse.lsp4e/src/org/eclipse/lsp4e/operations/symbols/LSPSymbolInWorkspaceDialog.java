@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.lsp4e.operations.symbols;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -124,24 +125,32 @@ public class LSPSymbolInWorkspaceDialog extends FilteredItemsSelectionDialog {
 			return;
 		}
 
+		// requests are sent to all language servers at once, and the ones still
+		// pending when giving up are cancelled so that servers stop computing them
+		WorkspaceSymbolParams params = new WorkspaceSymbolParams(itemsFilter.getPattern());
+		List<CompletableFuture<List<? extends SymbolInformation>>> requests = new ArrayList<>(this.languageServers.size());
 		for (LanguageServer server : this.languageServers) {
-			if (monitor.isCanceled()) {
-				return;
-			}
-
-			WorkspaceSymbolParams params = new WorkspaceSymbolParams(itemsFilter.getPattern());
-			CompletableFuture<List<? extends SymbolInformation>> symbols = server.getWorkspaceService().symbol(params);
-
-			try {
-				List<?> items = symbols.get(1, TimeUnit.SECONDS);
-				for (Object item : items) {
-					if (item != null) {
-						contentProvider.add(item, itemsFilter);
+			requests.add(server.getWorkspaceService().symbol(params));
+		}
+		long deadline = System.currentTimeMillis() + 1000;
+		try {
+			for (CompletableFuture<List<? extends SymbolInformation>> symbols : requests) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				try {
+					List<?> items = symbols.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+					for (Object item : items) {
+						if (item != null) {
+							contentProvider.add(item, itemsFilter);
+						}
 					}
+				} catch (InterruptedException | ExecutionException | TimeoutException e) {
+					LanguageServerPlugin.logError(e);
 				}
-			} catch (InterruptedException | ExecutionException | TimeoutException e) {
-				LanguageServerPlugin.logError(e);
 			}
+		} finally {
+			requests.forEach(request -> request.cancel(true));
 		}
 	}
 
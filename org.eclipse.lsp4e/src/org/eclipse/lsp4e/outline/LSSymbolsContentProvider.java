@@ -32,6 +32,7 @@ import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.lsp4e.LSPEclipseUtils;
 import org.eclipse.lsp4e.LanguageServerPlugin;
 import org.eclipse.lsp4e.LanguageServiceAccessor.LSPDocumentInfo;
+import org.eclipse.lsp4e.RequestScheduler.Priority;
 import org.eclipse.lsp4j.DocumentSymbolParams;
 import org.eclipse.lsp4j.SymbolInformation;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
@@ -45,6 +46,8 @@ import org.eclipse.ui.texteditor.AbstractTextEditor;
 
 public class LSSymbolsContentProvider implements ICommonContentProvider, ITreeContentProvider, IDocumentListener, IResourceChangeListener {
 
+	private static final String DOCUMENT_SYMBOL_METHOD = "textDocument/documentSymbol"; //$NON-NLS-1$
+
 	public static final Object COMPUTING = new Object();
 
 	private TreeViewer viewer;
@@ -112,8 +115,8 @@ public class LSSymbolsContentProvider implements ICommonContentProvider, ITreeCo
 		}
 		lastError = null;
 		DocumentSymbolParams params = new DocumentSymbolParams(new TextDocumentIdentifier(info.getFileUri().toString()));
-		symbols = info.getInitializedLanguageClient()
-				.thenCompose(languageServer -> languageServer.getTextDocumentService().documentSymbol(params));
+		symbols = info.sendCachedRequest(Priority.BACKGROUND, DOCUMENT_SYMBOL_METHOD, params,
+				languageServer -> languageServer.getTextDocumentService().documentSymbol(params));
 		symbols.thenAccept((List<? extends SymbolInformation> t) -> {
 			symbolsModel.update(t);
 
@@ -35,7 +35,9 @@ public class SymbolsModel {
 		// TODO update model only on real change
 		childrenMap.clear();
 		if (response != null && !response.isEmpty()) {
-			Collections.sort(response, new Comparator<SymbolInformation>() {
+			// sort a copy, the response may be cached and shared with other views
+			List<SymbolInformation> symbols = new ArrayList<>(response);
+			Collections.sort(symbols, new Comparator<SymbolInformation>() {
 
 				@Override
 				public int compare(SymbolInformation o1, SymbolInformation o2) {
@@ -53,8 +55,8 @@ public class SymbolsModel {
 			Stack<SymbolInformation> parentStack = new Stack<>();
 			parentStack.push(ROOT);
 			SymbolInformation previousSymbol = null;
-			for (int i = 0; i < response.size(); i++) {
-				SymbolInformation symbol = response.get(i);
+			for (int i = 0; i < symbols.size(); i++) {
+				SymbolInformation symbol = symbols.get(i);
 
 				if (isIncluded(previousSymbol, symbol)) {
 					parentStack.push(previousSymbol);
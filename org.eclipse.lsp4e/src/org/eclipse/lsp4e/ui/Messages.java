@@ -33,6 +33,8 @@ public class Messages extends NLS {
 	public static String codeLens_emptyMenu;
 	public static String updateCodeActions_menu;
 	public static String initializeLanguageServer_job;
+	public static String stopIdleLanguageServer_job;
+	public static String warmUpLanguageServers_job;
 	public static String computing;
 	public static String notImplemented;
 	public static String LSPSymbolInWorkspaceDialog_DialogLabel;